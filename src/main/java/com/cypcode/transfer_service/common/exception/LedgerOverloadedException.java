@@ -0,0 +1,7 @@
+package com.cypcode.transfer_service.common.exception;
+
+public class LedgerOverloadedException extends RuntimeException {
+    public LedgerOverloadedException(String message) {
+        super(message);
+    }
+}
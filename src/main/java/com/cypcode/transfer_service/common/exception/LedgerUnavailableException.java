@@ -0,0 +1,7 @@
+package com.cypcode.transfer_service.common.exception;
+
+public class LedgerUnavailableException extends RuntimeException {
+    public LedgerUnavailableException(String message) {
+        super(message);
+    }
+}
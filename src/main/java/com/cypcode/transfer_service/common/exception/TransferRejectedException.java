@@ -0,0 +1,7 @@
+package com.cypcode.transfer_service.common.exception;
+
+public class TransferRejectedException extends RuntimeException {
+    public TransferRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,52 @@
+package com.cypcode.transfer_service.configuration;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Creates the beans declared in {@code cypcode.service.startup.lazy-packages} on first use instead of at startup. It is
+ * meant for beans off the transfer path, such as the OpenAPI documentation and Swagger UI ({@code org.springdoc}), which
+ * then cost nothing until someone opens them. A bean counts as declared in a package when its class, or the
+ * configuration class whose {@code @Bean} method creates it, is in that package.
+ */
+@Configuration
+public class LazyBeanConfiguration {
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyBeanFactoryPostProcessor(Environment environment) {
+        List<String> packages = Binder.get(environment)
+                .bind("cypcode.service.startup.lazy-packages", Bindable.listOf(String.class))
+                .orElse(List.of())
+                .stream()
+                .map(name -> name + ".")
+                .toList();
+        return beanFactory -> {
+            if (packages.isEmpty()) {
+                return;
+            }
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                String declaringClass = declaringClass(beanFactory, definition);
+                if (declaringClass != null && packages.stream().anyMatch(declaringClass::startsWith)) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    private static String declaringClass(ConfigurableListableBeanFactory beanFactory, BeanDefinition definition) {
+        String factoryBeanName = definition.getFactoryBeanName();
+        if (definition.getBeanClassName() == null && factoryBeanName != null && beanFactory.containsBeanDefinition(factoryBeanName)) {
+            return beanFactory.getBeanDefinition(factoryBeanName).getBeanClassName();
+        }
+        return definition.getBeanClassName();
+    }
+}
@@ -0,0 +1,58 @@
+package com.cypcode.transfer_service.configuration;
+
+import com.cypcode.transfer_service.common.exception.LedgerOverloadedException;
+import com.cypcode.transfer_service.common.exception.LedgerUnavailableException;
+import feign.FeignException;
+import feign.RetryableException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Puts the adaptive limiter in front of the ledger transfer calls. It runs outside the circuit breaker, so shed calls
+ * never count as ledger failures, while outages reported by the breaker's fallback shrink the limit.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "cypcode.service.ledger.limiter.enabled", havingValue = "true", matchIfMissing = true)
+public class LedgerConcurrencyLimitAspect {
+
+    @Autowired
+    private LedgerConcurrencyLimiter ledgerConcurrencyLimiter;
+
+    @Around("execution(* com.cypcode.transfer_service.configuration.LedgerFeignClient.createTransfer(..))")
+    public Object limitTransfer(ProceedingJoinPoint joinPoint) throws Throwable {
+        return limit(joinPoint, true);
+    }
+
+    /**
+     * A bulk call holds one permit, but its latency grows with the chunk size rather than with congestion, so only
+     * its failures feed back into the limit.
+     */
+    @Around("execution(* com.cypcode.transfer_service.configuration.LedgerFeignClient.createTransfers(..))")
+    public Object limitBulkTransfer(ProceedingJoinPoint joinPoint) throws Throwable {
+        return limit(joinPoint, false);
+    }
+
+    private Object limit(ProceedingJoinPoint joinPoint, boolean sampleLatency) throws Throwable {
+        long startNanos = ledgerConcurrencyLimiter.tryAcquire();
+        if (startNanos < 0) {
+            throw new LedgerOverloadedException("Ledger is at its concurrency limit, retry the request");
+        }
+        boolean dropped = false;
+        try {
+            return joinPoint.proceed();
+        } catch (LedgerUnavailableException | FeignException.FeignServerException | RetryableException e) {
+            dropped = true;
+            throw e;
+        } finally {
+            ledgerConcurrencyLimiter.release(startNanos, dropped, sampleLatency);
+        }
+    }
+}
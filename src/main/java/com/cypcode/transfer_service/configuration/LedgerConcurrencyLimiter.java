@@ -0,0 +1,92 @@
+package com.cypcode.transfer_service.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD limit on concurrent ledger calls. Every call that comes back within the latency threshold while the limit is
+ * in use grows the limit by one call per limit's worth of successes; a call that fails or is slower than the threshold
+ * shrinks it by the backoff ratio, at most once per round trip so one congested burst does not collapse it.
+ * Calls beyond the limit are rejected straight away instead of queueing in the connection pool.
+ */
+@Component
+public class LedgerConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectedCounter;
+    private volatile double limit;
+    private long lastDecreaseNanos;
+
+    public LedgerConcurrencyLimiter(MeterRegistry meterRegistry,
+                                    @Value("${cypcode.service.ledger.limiter.initial-limit:20}") int initialLimit,
+                                    @Value("${cypcode.service.ledger.limiter.min-limit:5}") int minLimit,
+                                    @Value("${cypcode.service.ledger.limiter.max-limit:50}") int maxLimit,
+                                    @Value("${cypcode.service.ledger.limiter.latency-threshold-ms:500}") long latencyThresholdMs,
+                                    @Value("${cypcode.service.ledger.limiter.backoff-ratio:0.9}") double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime();
+        Gauge.builder("ledger.limiter.limit", this, LedgerConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit on concurrent ledger calls")
+                .register(meterRegistry);
+        Gauge.builder("ledger.limiter.in.flight", inFlight, AtomicInteger::get)
+                .description("Ledger calls currently in flight")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("ledger.limiter.rejected")
+                .description("Ledger calls shed because the concurrency limit was reached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the call's start time when a permit was taken, or -1 when the limit is reached.
+     */
+    public long tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                rejectedCounter.increment();
+                return -1;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return System.nanoTime();
+    }
+
+    public void release(long startNanos, boolean dropped, boolean sampleLatency) {
+        long now = System.nanoTime();
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (dropped || (sampleLatency && now - startNanos > latencyThresholdNanos)) {
+                // calls started before the last decrease already saw the old limit
+                if (startNanos > lastDecreaseNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                }
+            } else if (current * 2 >= limit) {
+                // grows only while the limit is actually used, so quiet periods do not inflate it
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
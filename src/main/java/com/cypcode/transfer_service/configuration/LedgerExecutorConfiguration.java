@@ -0,0 +1,49 @@
+package com.cypcode.transfer_service.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Dedicated executor for outbound ledger calls. With platform threads it is a bounded {@link ThreadPoolTaskExecutor},
+ * whose pool metrics actuator binds automatically under {@code executor.*} with {@code name=ledgerExecutor}.
+ * When {@code spring.threads.virtual.enabled} is set, every ledger call gets its own virtual thread instead and only
+ * the concurrency limit bounds the fan-out.
+ */
+@Configuration
+public class LedgerExecutorConfiguration {
+
+    @Bean(name = "ledgerExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor ledgerExecutor(@Value("${cypcode.service.ledger.executor.core-pool-size:20}") int corePoolSize,
+                                                 @Value("${cypcode.service.ledger.executor.max-pool-size:50}") int maxPoolSize,
+                                                 @Value("${cypcode.service.ledger.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ledger-");
+        // when the pool and queue are full the submitting thread runs the work itself, throttling the caller
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean(name = "ledgerExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor virtualLedgerExecutor(@Value("${cypcode.service.ledger.executor.virtual-concurrency-limit:1000}") int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ledger-vt-");
+        executor.setVirtualThreads(true);
+        // submitters block once the limit is reached, keeping the ledger and the JDBC pool from being flooded
+        executor.setConcurrencyLimit(concurrencyLimit);
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+}
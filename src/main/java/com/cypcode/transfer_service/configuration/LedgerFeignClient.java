@@ -1,31 +1,48 @@
 package com.cypcode.transfer_service.configuration;
 
+import com.cypcode.transfer_service.common.exception.LedgerUnavailableException;
+import com.cypcode.transfer_service.entity.dto.LedgerTransferResultDTO;
 import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import feign.FeignException;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @FeignClient(value = "ledger-feign-client", url = "${cypcode.service.ledger.base-url}")
 public interface LedgerFeignClient {
     @PostMapping(path = "${cypcode.service.ledger.transfer}")
     @CircuitBreaker(name = "ledger-cb-transfer", fallbackMethod = "createTransferFallback")
     ResponseEntity<String> createTransfer(@RequestBody TransferDTO payload);
 
+    /**
+     * Ledger rejections (4xx) are handed back as responses for the service to map; anything else means the ledger could
+     * not answer, which must surface as an error and never as a successful transfer.
+     */
     default ResponseEntity<String> createTransferFallback(@RequestBody TransferDTO payload, Throwable throwable) {
-        System.out.println("Create Transfer Fallback");
-        System.out.println(String.format("Create Transfer Exception: %s", throwable.getMessage()));
-        return ResponseEntity.ok("FAILURE");
+        if (throwable instanceof FeignException.FeignClientException e) {
+            return ResponseEntity.status(e.status()).body(e.contentUTF8());
+        }
+        LedgerFeignClientLog.LOG.warn("Create transfer fallback for transfer {}: {}", payload.getTransferId(), throwable.getMessage());
+        throw new LedgerUnavailableException(String.format("Ledger unavailable: %s", throwable.getMessage()));
     }
 
+    /**
+     * Shares the single-transfer breaker, so bulk calls stop while it is open. There is no fallback: callers see
+     * CallNotPermittedException or the Feign error and handle it like any other failed bulk call.
+     */
+    @PostMapping(path = "${cypcode.service.ledger.bulk-transfer}")
+    @CircuitBreaker(name = "ledger-cb-transfer")
+    ResponseEntity<List<LedgerTransferResultDTO>> createTransfers(@RequestBody List<TransferDTO> payload);
 
     @GetMapping(path = "${cypcode.service.ledger.transfer}/{id}")
     @CircuitBreaker(name = "ledger-cb-transfer", fallbackMethod = "getTransferFallback")
     TransferDTO getTransfer(@PathVariable("id") long id);
 
     default TransferDTO getTransferFallback(@PathVariable("id") long id, Throwable throwable) {
-        System.out.println("Get Transfer Fallback");
-        System.out.println(String.format("Get Transfer Exception: %s", throwable.getMessage()));
+        LedgerFeignClientLog.LOG.warn("Get transfer fallback for transfer {}: {}", id, throwable.getMessage());
         return new TransferDTO();
     }
 }
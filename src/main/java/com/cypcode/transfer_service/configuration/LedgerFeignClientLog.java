@@ -0,0 +1,15 @@
+package com.cypcode.transfer_service.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logger for the fallbacks of {@link LedgerFeignClient}. Any field of the interface would be public API, and so would a
+ * type nested in it, hence this package-private holder.
+ */
+final class LedgerFeignClientLog {
+    static final Logger LOG = LoggerFactory.getLogger(LedgerFeignClient.class);
+
+    private LedgerFeignClientLog() {
+    }
+}
@@ -0,0 +1,50 @@
+package com.cypcode.transfer_service.configuration;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.openfeign.clientconfig.HttpClient5FeignConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tunes the pooled Apache HttpClient 5 transport that Spring Cloud OpenFeign builds for {@link LedgerFeignClient}.
+ * Pool sizes, time-to-live and timeouts come from {@code spring.cloud.openfeign.httpclient.*}; this adds keep-alive
+ * and idle eviction, and publishes pool saturation as {@code httpcomponents.httpclient.pool.*} metrics.
+ * Setting {@code spring.cloud.openfeign.http2client.enabled=true} (with hc5 disabled) switches to the JDK HTTP/2 client.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.cloud.openfeign.httpclient.hc5.enabled", havingValue = "true", matchIfMissing = true)
+public class LedgerHttpClientConfiguration {
+
+    @Bean
+    public HttpClient5FeignConfiguration.HttpClientBuilderCustomizer ledgerHttpClientCustomizer(
+            @Value("${cypcode.service.ledger.http.keep-alive-seconds:30}") long keepAliveSeconds,
+            @Value("${cypcode.service.ledger.http.idle-eviction-seconds:60}") long idleEvictionSeconds) {
+        TimeValue maxKeepAlive = TimeValue.ofSeconds(keepAliveSeconds);
+        return builder -> builder
+                // honour the ledger's Keep-Alive header but never keep a connection longer than configured
+                .setKeepAliveStrategy((response, context) -> {
+                    TimeValue keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return TimeValue.isPositive(keepAlive) && keepAlive.compareTo(maxKeepAlive) < 0 ? keepAlive : maxKeepAlive;
+                })
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictionSeconds));
+    }
+
+    @Bean
+    @SuppressWarnings("unchecked")
+    public MeterBinder ledgerConnectionPoolMetrics(ObjectProvider<HttpClientConnectionManager> connectionManager) {
+        return registry -> {
+            if (connectionManager.getIfAvailable() instanceof ConnPoolControl<?> pool) {
+                new PoolingHttpClientConnectionManagerMetricsBinder((ConnPoolControl<HttpRoute>) pool, "ledger").bindTo(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,153 @@
+package com.cypcode.transfer_service.controller;
+
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.service.TransferService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Answers replays of {@code POST /transfers} before Spring MVC sees them: when the idempotency key belongs to a
+ * completed transfer held in memory, its cached response bytes are written straight to the response, skipping DTO
+ * mapping, the service call and JSON serialization. The body is still validated as the controller would, and a body
+ * that fails goes on to the controller for its 400. Cross-origin requests always go to the controller, since their
+ * CORS headers come from its {@code @CrossOrigin}. Every other request passes through to the controller.
+ * It runs ahead of the HTTP observation filter, so replays are counted by {@code transfer.outcome{outcome=replayed}}
+ * and {@code transfer.request} rather than {@code http.server.requests}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class IdempotentReplayFilter extends OncePerRequestFilter {
+
+    private static final String TRANSFERS_PATH = "/transfers";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.POST.matches(request.getMethod())) {
+            return true;
+        }
+        String uri = request.getRequestURI();
+        int contextLength = request.getContextPath().length();
+        return uri.length() != contextLength + TRANSFERS_PATH.length() || !uri.startsWith(TRANSFERS_PATH, contextLength)
+                || CorsUtils.isCorsRequest(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY);
+        byte[] replay = idempotencyKey == null || idempotencyKey.isEmpty() ? null : transferService.findReplayResponse(idempotencyKey);
+        if (replay == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        byte[] body = request.getInputStream().readAllBytes();
+        if (!isJson(request.getContentType()) || !isValid(body)) {
+            filterChain.doFilter(new CachedBodyRequest(request, body), response);
+            return;
+        }
+        response.setStatus(HttpStatus.CREATED.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(replay.length);
+        response.getOutputStream().write(replay);
+    }
+
+    private boolean isJson(String contentType) {
+        try {
+            return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private boolean isValid(byte[] body) {
+        try {
+            TransferDTO payload = objectMapper.readValue(body, TransferDTO.class);
+            return payload != null && validator.validate(payload).isEmpty();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Hands the already read body to the rest of the chain.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    Charset.forName(getCharacterEncoding() == null ? StandardCharsets.UTF_8.name() : getCharacterEncoding())));
+        }
+    }
+}
@@ -3,8 +3,16 @@ package com.cypcode.transfer_service.controller;
 import com.cypcode.transfer_service.common.exception.AccountNotFoundException;
 import com.cypcode.transfer_service.common.exception.IdempotencyException;
 import com.cypcode.transfer_service.common.exception.InsufficienetFundsException;
+import com.cypcode.transfer_service.common.exception.LedgerOverloadedException;
+import com.cypcode.transfer_service.common.exception.LedgerUnavailableException;
+import com.cypcode.transfer_service.common.exception.TransferRejectedException;
+import com.cypcode.transfer_service.entity.dto.BatchItemResultDTO;
+import com.cypcode.transfer_service.entity.dto.BatchJobDTO;
 import com.cypcode.transfer_service.entity.dto.IdempotencyDTO;
 import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.entity.dto.TransferStatusDTO;
+import com.cypcode.transfer_service.entity.dto.TransferStatusQueryDTO;
+import com.cypcode.transfer_service.service.BatchJobService;
 import com.cypcode.transfer_service.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,16 +20,26 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @Slf4j
@@ -35,21 +53,43 @@ public class TransferController {
     @Autowired
     private TransferService transferService;
 
+    @Autowired
+    private BatchJobService batchJobService;
+
+    @Value("${cypcode.service.ledger.limiter.retry-after-seconds:1}")
+    private long overloadedRetryAfterSeconds;
+
+    @Value("${cypcode.service.ledger.unavailable-retry-after-seconds:5}")
+    private long unavailableRetryAfterSeconds;
+
     @Operation(summary = "Create a new transfers", description = "Add a new transfers")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "transfer completed successfully",
                     content = @Content(schema = @Schema(implementation = IdempotencyDTO.class))),
+            @ApiResponse(responseCode = "202", description = "Ledger unavailable, transfer queued and pending; poll the Location for its outcome",
+                    content = @Content(schema = @Schema(implementation = IdempotencyDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid request data",
                     content = @Content(schema = @Schema())),
             @ApiResponse(responseCode = "428", description = "Insufficient funds in account",
                     content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "422", description = "Queued transfer was rejected by the ledger when it was relayed",
+                    content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "429", description = "Transfer in progress or ledger at capacity, retry after the Retry-After delay",
+                    content = @Content(schema = @Schema())),
             @ApiResponse(responseCode = "500", description = "internal server error",
+                    content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "503", description = "Ledger unavailable and the transfer could not be queued, retry after the Retry-After delay",
                     content = @Content(schema = @Schema()))
     })
     @PostMapping()
     public ResponseEntity<?> createTransfer(@RequestHeader(name = "Idempotency-Key") @NotEmpty String idempotencyKey,@RequestBody @Valid TransferDTO payload) {
         try {
             IdempotencyDTO response = transferService.createTransferWithIndempotency(payload, idempotencyKey);
+            if (response.isPending()) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .header(HttpHeaders.LOCATION, "/transfers/" + response.getTransferId())
+                        .body(response);
+            }
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
         }
         catch (AccountNotFoundException e){
@@ -61,6 +101,19 @@ public class TransferController {
         catch (IdempotencyException e){
             return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
         }
+        catch (TransferRejectedException e){
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
+        }
+        catch (LedgerOverloadedException e){
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(overloadedRetryAfterSeconds))
+                    .body(e.getMessage());
+        }
+        catch (LedgerUnavailableException e){
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(unavailableRetryAfterSeconds))
+                    .body(e.getMessage());
+        }
         catch (Exception e){
             log.error("Transfer request failed: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
@@ -84,10 +137,48 @@ public class TransferController {
     }
 
 
+    @Operation(summary = "Get transfer statuses in bulk", description = "Retrieve the status of many transfers by transferId and/or Idempotency-Key")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "statuses streamed as NDJSON, one line per requested transferId, then per key",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = TransferStatusDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request data",
+                    content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "500", description = "internal server error",
+                    content = @Content(schema = @Schema()))
+    })
+    @PostMapping("status")
+    public ResponseEntity<StreamingResponseBody> getTransferStatuses(@RequestBody @Valid TransferStatusQueryDTO query) {
+        if (query.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "transferIds or idempotencyKeys must not be empty");
+        }
+        StreamingResponseBody body = output -> transferService.streamTransferStatuses(query, output);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(summary = "Get transfer statuses by transferId range", description = "Retrieve the status of every transfer in a transferId range, in transferId order")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "statuses streamed as NDJSON, one line per transfer found",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = TransferStatusDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid range",
+                    content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "500", description = "internal server error",
+                    content = @Content(schema = @Schema()))
+    })
+    @GetMapping("status")
+    public ResponseEntity<StreamingResponseBody> getTransferStatusRange(@RequestParam long fromTransferId, @RequestParam long toTransferId) {
+        if (fromTransferId > toTransferId) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fromTransferId must not be greater than toTransferId");
+        }
+        StreamingResponseBody body = output -> transferService.streamTransferStatusRange(fromTransferId, toTransferId, output);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @Operation(summary = "Create a new transfers", description = "Add a new transfers")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "201", description = "transfer completed successfully",
-                    content = @Content(schema = @Schema(implementation = TransferDTO.class))),
+            @ApiResponse(responseCode = "202", description = "all transfer items processed successfully",
+                    content = @Content(schema = @Schema(implementation = BatchItemResultDTO.class))),
+            @ApiResponse(responseCode = "207", description = "one or more transfer items failed",
+                    content = @Content(schema = @Schema(implementation = BatchItemResultDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid request data",
                     content = @Content(schema = @Schema())),
             @ApiResponse(responseCode = "500", description = "internal server error",
@@ -96,14 +187,87 @@ public class TransferController {
     @PostMapping("batch")
     public ResponseEntity<?> createBatchTransfer(@RequestBody
                                                  @NotEmpty(message = "Item list cannot be empty")
-                                                 @Size(min = 1, max = 20, message = "Item list size must be between 1 and 20")
+                                                 @Size(min = 1, max = 1000, message = "Item list size must be between 1 and 1000")
                                                  List<@Valid TransferDTO> payload) {
         try {
-            transferService.batchTransfer(payload);
-            return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+            List<BatchItemResultDTO> results = transferService.batchTransfer(payload);
+            boolean allSucceeded = results.stream().noneMatch(result -> result.getStatus() == BatchItemResultDTO.Status.FAILED);
+            return ResponseEntity.status(allSucceeded ? HttpStatus.ACCEPTED : HttpStatus.MULTI_STATUS).body(results);
         }catch (Exception e){
             log.error("Transfer request failed: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
         }
     }
+
+    @Operation(summary = "Stream batch transfers", description = "Submit newline-delimited transfers and receive newline-delimited item results as they complete")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "item results streamed as NDJSON, one line per record",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = BatchItemResultDTO.class))),
+            @ApiResponse(responseCode = "500", description = "internal server error",
+                    content = @Content(schema = @Schema()))
+    })
+    @PostMapping(value = "batch/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBatchTransfer(HttpServletRequest request) throws IOException {
+        // the body is read by the streaming task, so parsing and ledger calls overlap with the upload
+        InputStream input = request.getInputStream();
+        StreamingResponseBody body = output -> {
+            try {
+                transferService.streamTransfer(input, output);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Streamed batch transfer interrupted");
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(summary = "Submit a batch transfer job", description = "Queue a large transfer batch for background processing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "batch job accepted",
+                    content = @Content(schema = @Schema(implementation = BatchJobDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request data",
+                    content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "500", description = "internal server error",
+                    content = @Content(schema = @Schema()))
+    })
+    @PostMapping("batch/jobs")
+    public ResponseEntity<?> submitBatchJob(@RequestBody
+                                            @NotEmpty(message = "Item list cannot be empty")
+                                            @Size(min = 1, max = 100000, message = "Item list size must be between 1 and 100000")
+                                            List<@Valid TransferDTO> payload) {
+        try {
+            BatchJobDTO job = batchJobService.submitJob(payload);
+            batchJobService.dispatchJobs();
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/transfers/batch/" + job.getJobId())
+                    .body(job);
+        }catch (Exception e){
+            log.error("Batch job submission failed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Get batch job status", description = "Retrieve batch job progress and a page of item outcomes")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "batch job status retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = BatchJobDTO.class))),
+            @ApiResponse(responseCode = "404", description = "batch job not found",
+                    content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "500", description = "internal server error",
+                    content = @Content(schema = @Schema()))
+    })
+    @GetMapping("batch/{jobId}")
+    public ResponseEntity<?> getBatchJob(@PathVariable String jobId,
+                                         @RequestParam(defaultValue = "0") @Min(0) int page,
+                                         @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int size) {
+        try {
+            BatchJobDTO job = batchJobService.getJob(jobId, page, size);
+            if (job == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(String.format("Batch job %s not found", jobId));
+            }
+            return ResponseEntity.ok().body(job);
+        }catch (Exception e){
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
 }
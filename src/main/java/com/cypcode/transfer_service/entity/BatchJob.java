@@ -0,0 +1,33 @@
+package com.cypcode.transfer_service.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "batch_job")
+public class BatchJob implements Serializable {
+    @Id
+    private String id;
+    @Enumerated(EnumType.STRING)
+    private BatchJobStatus status;
+    private int totalItems;
+    private int completedItems;
+    private int failedItems;
+    private LocalDateTime createdDate;
+    private LocalDateTime updatedDate;
+    private LocalDateTime leaseExpiry;
+}
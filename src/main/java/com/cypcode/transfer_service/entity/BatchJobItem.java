@@ -0,0 +1,34 @@
+package com.cypcode.transfer_service.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "batch_job_item")
+public class BatchJobItem implements Serializable {
+    @Id
+    private String id;
+    private String jobId;
+    private int itemIndex;
+    private long transferId;
+    private long fromAccountId;
+    private long toAccountId;
+    private BigDecimal amount;
+    @Enumerated(EnumType.STRING)
+    private BatchJobItemStatus status;
+    private String response;
+}
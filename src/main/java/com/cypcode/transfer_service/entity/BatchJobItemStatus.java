@@ -0,0 +1,8 @@
+package com.cypcode.transfer_service.entity;
+
+public enum BatchJobItemStatus {
+    PENDING,
+    PROCESSED,
+    REPLAYED,
+    FAILED
+}
@@ -0,0 +1,7 @@
+package com.cypcode.transfer_service.entity;
+
+public enum BatchJobStatus {
+    SUBMITTED,
+    RUNNING,
+    COMPLETED
+}
@@ -1,6 +1,8 @@
 package com.cypcode.transfer_service.entity;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
@@ -23,4 +25,6 @@ public class Idempotency implements Serializable {
     private Long transferId;
     private String response;
     private LocalDateTime expiryDate;
+    @Enumerated(EnumType.STRING)
+    private IdempotencyStatus status;
 }
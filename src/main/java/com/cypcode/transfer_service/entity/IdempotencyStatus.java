@@ -0,0 +1,11 @@
+package com.cypcode.transfer_service.entity;
+
+public enum IdempotencyStatus {
+    RESERVED,
+    PENDING,
+    COMPLETED,
+    // applied by the ledger, but its outcome could not be stored; held until reconciled so the key is never resent
+    UNRECONCILED,
+    // refused by the ledger when the outbox relayed it; the rejection is kept so a retry of the key is not resent
+    REJECTED
+}
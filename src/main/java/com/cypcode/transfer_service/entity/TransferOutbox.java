@@ -0,0 +1,32 @@
+package com.cypcode.transfer_service.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "transfer_outbox")
+public class TransferOutbox implements Serializable {
+    @Id
+    private Long transferId;
+    private String idempotencyKey;
+    private long fromAccountId;
+    private long toAccountId;
+    private BigDecimal amount;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private String lastError;
+    private LocalDateTime createdDate;
+}
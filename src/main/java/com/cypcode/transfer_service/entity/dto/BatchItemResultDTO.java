@@ -0,0 +1,27 @@
+package com.cypcode.transfer_service.entity.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BatchItemResultDTO implements Serializable {
+    private long transferId;
+    private Status status;
+    private String response;
+
+    public enum Status {
+        PENDING,
+        PROCESSED,
+        REPLAYED,
+        FAILED
+    }
+}
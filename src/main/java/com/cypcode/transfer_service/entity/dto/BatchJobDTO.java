@@ -0,0 +1,29 @@
+package com.cypcode.transfer_service.entity.dto;
+
+import com.cypcode.transfer_service.entity.BatchJobStatus;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BatchJobDTO implements Serializable {
+    private String jobId;
+    private BatchJobStatus status;
+    private int totalItems;
+    private int completedItems;
+    private int failedItems;
+    private int pendingItems;
+    private LocalDateTime createdDate;
+    private LocalDateTime updatedDate;
+    private List<BatchItemResultDTO> items;
+}
@@ -17,6 +17,14 @@ import java.time.LocalDateTime;
 public class IdempotencyDTO implements Serializable {
     private String id;
     private Long transferId;
+    private TransferStatusDTO.Status status;
     private String response;
     private LocalDateTime expiryDate;
+
+    /**
+     * A transfer accepted while the ledger was unavailable and not yet applied by the outbox relay; it has no response.
+     */
+    public boolean isPending() {
+        return status == TransferStatusDTO.Status.PENDING;
+    }
 }
@@ -0,0 +1,24 @@
+package com.cypcode.transfer_service.entity.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Per-item outcome of a bulk ledger call; {@code status} is the HTTP status the ledger would have returned for the
+ * item on its own.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class LedgerTransferResultDTO implements Serializable {
+    private long transferId;
+    private int status;
+    private String response;
+}
@@ -0,0 +1,32 @@
+package com.cypcode.transfer_service.entity.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TransferStatusDTO implements Serializable {
+    private String id;
+    private Long transferId;
+    private Status status;
+    private String response;
+    private LocalDateTime expiryDate;
+
+    public enum Status {
+        COMPLETED,
+        PENDING,
+        IN_PROGRESS,
+        UNRECONCILED,
+        REJECTED,
+        NOT_FOUND
+    }
+}
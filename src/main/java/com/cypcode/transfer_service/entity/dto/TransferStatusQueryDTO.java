@@ -0,0 +1,32 @@
+package com.cypcode.transfer_service.entity.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TransferStatusQueryDTO implements Serializable {
+    @Size(max = 100000, message = "At most 100000 transferIds per request")
+    private List<@NotNull Long> transferIds;
+
+    @Size(max = 100000, message = "At most 100000 idempotency keys per request")
+    private List<@NotEmpty String> idempotencyKeys;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return (transferIds == null || transferIds.isEmpty()) && (idempotencyKeys == null || idempotencyKeys.isEmpty());
+    }
+}
@@ -0,0 +1,16 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.BatchJobItem;
+
+import java.util.List;
+
+/**
+ * JDBC batch writes for job items, which arrive in the tens of thousands and would otherwise cost a statement
+ * (and for updates a select) per row through the entity manager.
+ */
+public interface BatchJobItemBatchOperations {
+
+    void insertAll(List<BatchJobItem> items);
+
+    void updateOutcomes(List<BatchJobItem> items);
+}
@@ -0,0 +1,51 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.BatchJobItem;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public class BatchJobItemBatchOperationsImpl implements BatchJobItemBatchOperations {
+
+    private static final String INSERT_SQL = "INSERT INTO batch_job_item " +
+            "(id, job_id, item_index, transfer_id, from_account_id, to_account_id, amount, status, response) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE batch_job_item SET status = ?, response = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public BatchJobItemBatchOperationsImpl(JdbcTemplate jdbcTemplate,
+                                           @Value("${cypcode.service.transfer.batch.job.insert-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<BatchJobItem> items) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, items, batchSize, (ps, item) -> {
+            ps.setString(1, item.getId());
+            ps.setString(2, item.getJobId());
+            ps.setInt(3, item.getItemIndex());
+            ps.setLong(4, item.getTransferId());
+            ps.setLong(5, item.getFromAccountId());
+            ps.setLong(6, item.getToAccountId());
+            ps.setBigDecimal(7, item.getAmount());
+            ps.setString(8, item.getStatus().name());
+            ps.setString(9, item.getResponse());
+        });
+    }
+
+    @Override
+    @Transactional
+    public void updateOutcomes(List<BatchJobItem> items) {
+        jdbcTemplate.batchUpdate(UPDATE_SQL, items, batchSize, (ps, item) -> {
+            ps.setString(1, item.getStatus().name());
+            ps.setString(2, item.getResponse());
+            ps.setString(3, item.getId());
+        });
+    }
+}
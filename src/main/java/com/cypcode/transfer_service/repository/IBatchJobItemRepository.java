@@ -0,0 +1,21 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.BatchJobItem;
+import com.cypcode.transfer_service.entity.BatchJobItemStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface IBatchJobItemRepository extends JpaRepository<BatchJobItem, String>, BatchJobItemBatchOperations {
+
+    @Transactional(readOnly = true)
+    List<BatchJobItem> findByJobIdAndStatusOrderByItemIndex(String jobId, BatchJobItemStatus status, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    Page<BatchJobItem> findByJobIdOrderByItemIndex(String jobId, Pageable pageable);
+}
@@ -0,0 +1,49 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.BatchJob;
+import com.cypcode.transfer_service.entity.BatchJobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface IBatchJobRepository extends JpaRepository<BatchJob, String> {
+
+    /**
+     * Jobs that are waiting to start or whose worker lease has lapsed, e.g. because the instance running them stopped.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT j.id FROM BatchJob j WHERE j.status = :submitted OR (j.status = :running AND j.leaseExpiry < :now) " +
+            "ORDER BY j.createdDate")
+    List<String> findClaimableIds(@Param("submitted") BatchJobStatus submitted, @Param("running") BatchJobStatus running,
+                                  @Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Moves a claimable job to RUNNING under a new lease, returning 1 when this caller won it.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE BatchJob j SET j.status = :running, j.leaseExpiry = :leaseExpiry, j.updatedDate = :now " +
+            "WHERE j.id = :id AND (j.status = :submitted OR (j.status = :running AND j.leaseExpiry < :now))")
+    int claim(@Param("id") String id, @Param("submitted") BatchJobStatus submitted, @Param("running") BatchJobStatus running,
+              @Param("leaseExpiry") LocalDateTime leaseExpiry, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BatchJob j SET j.completedItems = j.completedItems + :completed, j.failedItems = j.failedItems + :failed, " +
+            "j.leaseExpiry = :leaseExpiry, j.updatedDate = :now WHERE j.id = :id")
+    int recordProgress(@Param("id") String id, @Param("completed") int completed, @Param("failed") int failed,
+                       @Param("leaseExpiry") LocalDateTime leaseExpiry, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BatchJob j SET j.status = :status, j.leaseExpiry = null, j.updatedDate = :now WHERE j.id = :id")
+    int updateStatus(@Param("id") String id, @Param("status") BatchJobStatus status, @Param("now") LocalDateTime now);
+}
@@ -1,15 +1,97 @@
 package com.cypcode.transfer_service.repository;
 
 import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface IIdempotencyRepository extends JpaRepository<Idempotency, String> {
 
-    Idempotency findIdempotencyById(String id);
-    Idempotency findIdempotencyByTransferId(long transferId);
+    @Transactional(readOnly = true)
+    IdempotencyView findIdempotencyById(String id);
+    @Transactional(readOnly = true)
+    IdempotencyView findIdempotencyByTransferId(long transferId);
+    @Transactional(readOnly = true)
+    List<IdempotencyView> findByIdIn(Collection<String> ids);
+    @Transactional(readOnly = true)
+    List<IdempotencyView> findByTransferIdIn(Collection<Long> transferIds);
+
+    /**
+     * Live rows in a transferId range, in transferId order; a range scan on idx_idempotency_transfer_id.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.cypcode.transfer_service.repository.IdempotencyView(i.id, i.transferId, i.response, i.expiryDate, i.status) " +
+            "FROM Idempotency i WHERE i.transferId BETWEEN :fromTransferId AND :toTransferId AND i.expiryDate > :now ORDER BY i.transferId")
+    List<IdempotencyView> findByTransferIdRange(@Param("fromTransferId") long fromTransferId, @Param("toTransferId") long toTransferId,
+                                                @Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Inserts a RESERVED row for the key; the primary key makes this fail with a
+     * {@link org.springframework.dao.DataIntegrityViolationException} when any instance already holds the key.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency (id, transfer_id, status, expiry_date) VALUES (:id, :transferId, 'RESERVED', :expiryDate)",
+            nativeQuery = true)
+    int reserve(@Param("id") String id, @Param("transferId") long transferId, @Param("expiryDate") LocalDateTime expiryDate);
+
+    /**
+     * Takes over a row whose entry or reservation lease has expired, returning 1 when this caller won it.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Idempotency i SET i.status = :status, i.transferId = :transferId, i.response = null, i.expiryDate = :expiryDate " +
+            "WHERE i.id = :id AND i.expiryDate < :now")
+    int reserveExpired(@Param("id") String id, @Param("transferId") long transferId, @Param("expiryDate") LocalDateTime expiryDate,
+                       @Param("now") LocalDateTime now, @Param("status") IdempotencyStatus status);
+
+    /**
+     * Deletes the row only while it still carries the given transferId, so a caller whose lease lapsed and was taken
+     * over cannot remove the new owner's reservation.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Idempotency i WHERE i.id = :id AND i.transferId = :transferId AND i.status = :status")
+    int release(@Param("id") String id, @Param("transferId") long transferId, @Param("status") IdempotencyStatus status);
+
+    /**
+     * Moves a row from one status to another as long as it still carries the given transferId, returning 1 when it did;
+     * a row taken over or purged since is left alone.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Idempotency i SET i.status = :status, i.response = :response, i.expiryDate = :expiryDate " +
+            "WHERE i.id = :id AND i.transferId = :transferId AND i.status = :currentStatus")
+    int transition(@Param("id") String id, @Param("transferId") long transferId, @Param("currentStatus") IdempotencyStatus currentStatus,
+                   @Param("status") IdempotencyStatus status, @Param("response") String response,
+                   @Param("expiryDate") LocalDateTime expiryDate);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Idempotency i SET i.expiryDate = :expiryDate WHERE i.id = :id AND i.transferId = :transferId AND i.status = :status")
+    int extend(@Param("id") String id, @Param("transferId") long transferId, @Param("status") IdempotencyStatus status,
+               @Param("expiryDate") LocalDateTime expiryDate);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT i.id FROM Idempotency i WHERE i.expiryDate < :now")
+    List<String> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Deletes the given rows only if they are still expired, so a key re-reserved since the scan is kept.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Idempotency i WHERE i.id IN :ids AND i.expiryDate < :now")
+    int deleteExpired(@Param("ids") List<String> ids, @Param("now") LocalDateTime now);
 
 }
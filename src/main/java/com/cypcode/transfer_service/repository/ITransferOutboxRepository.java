@@ -0,0 +1,55 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.TransferOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ITransferOutboxRepository extends JpaRepository<TransferOutbox, Long> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO transfer_outbox (transfer_id, idempotency_key, from_account_id, to_account_id, amount, attempts, " +
+            "next_attempt_at, created_date) VALUES (:transferId, :idempotencyKey, :fromAccountId, :toAccountId, :amount, 0, " +
+            ":nextAttemptAt, :now)", nativeQuery = true)
+    int enqueue(@Param("transferId") long transferId, @Param("idempotencyKey") String idempotencyKey,
+                @Param("fromAccountId") long fromAccountId, @Param("toAccountId") long toAccountId,
+                @Param("amount") BigDecimal amount, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                @Param("now") LocalDateTime now);
+
+    /**
+     * Transfers due for a ledger attempt, including ones claimed by a relay whose lease has lapsed.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT o.transferId FROM TransferOutbox o WHERE o.nextAttemptAt <= :now ORDER BY o.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Pushes a due transfer's next attempt out to the end of the lease, returning 1 when this caller won it.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE TransferOutbox o SET o.nextAttemptAt = :leaseExpiry WHERE o.transferId = :transferId AND o.nextAttemptAt <= :now")
+    int claim(@Param("transferId") long transferId, @Param("leaseExpiry") LocalDateTime leaseExpiry, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE TransferOutbox o SET o.attempts = o.attempts + 1, o.nextAttemptAt = :nextAttemptAt, o.lastError = :lastError " +
+            "WHERE o.transferId = :transferId")
+    int reschedule(@Param("transferId") long transferId, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TransferOutbox o WHERE o.transferId = :transferId")
+    int delete(@Param("transferId") long transferId);
+}
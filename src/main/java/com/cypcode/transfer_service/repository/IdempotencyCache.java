@@ -0,0 +1,106 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache in front of {@link IIdempotencyRepository}, keyed by idempotency key and by transferId.
+ * Each entry lives until its own expiry date, so replays and status lookups skip JDBC while the key is valid.
+ * Replay responses are also kept already serialized per key, so a replay can be written out without mapping or
+ * serializing anything. Hit, miss and eviction counters are published as {@code cache.*} metrics.
+ */
+@Component
+public class IdempotencyCache {
+
+    private final Cache<String, Idempotency> byId;
+    private final Cache<Long, Idempotency> byTransferId;
+    private final Cache<String, ReplayResponse> replayResponses;
+
+    public IdempotencyCache(MeterRegistry meterRegistry,
+                            @Value("${cypcode.service.idempotency.cache.maximum-size:100000}") long maximumSize) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ExpiryDateExpiry<String, Idempotency>(Idempotency::getExpiryDate))
+                .recordStats()
+                .build();
+        this.byTransferId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ExpiryDateExpiry<Long, Idempotency>(Idempotency::getExpiryDate))
+                .recordStats()
+                .build();
+        this.replayResponses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ExpiryDateExpiry<String, ReplayResponse>(ReplayResponse::expiryDate))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "idempotency-by-key");
+        CaffeineCacheMetrics.monitor(meterRegistry, byTransferId, "idempotency-by-transfer-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, replayResponses, "idempotency-replay-response");
+    }
+
+    public Idempotency getById(String id) {
+        return byId.getIfPresent(id);
+    }
+
+    public Idempotency getByTransferId(long transferId) {
+        return byTransferId.getIfPresent(transferId);
+    }
+
+    public void put(Idempotency idempotency) {
+        if (idempotency.getStatus() == IdempotencyStatus.COMPLETED && idempotency.getExpiryDate().isAfter(LocalDateTime.now())) {
+            byId.put(idempotency.getId(), idempotency);
+            byTransferId.put(idempotency.getTransferId(), idempotency);
+        }
+    }
+
+    /**
+     * Serialized response body of a completed transfer, returned as is on replay.
+     */
+    public byte[] getReplayResponse(String id) {
+        ReplayResponse response = replayResponses.getIfPresent(id);
+        return response == null ? null : response.body();
+    }
+
+    public void putReplayResponse(Idempotency idempotency, byte[] body) {
+        if (idempotency.getStatus() == IdempotencyStatus.COMPLETED && idempotency.getExpiryDate().isAfter(LocalDateTime.now())) {
+            replayResponses.put(idempotency.getId(), new ReplayResponse(body, idempotency.getExpiryDate()));
+        }
+    }
+
+    private record ReplayResponse(byte[] body, LocalDateTime expiryDate) {
+    }
+
+    private static class ExpiryDateExpiry<K, V> implements Expiry<K, V> {
+        private final Function<V, LocalDateTime> expiryDate;
+
+        ExpiryDateExpiry(Function<V, LocalDateTime> expiryDate) {
+            this.expiryDate = expiryDate;
+        }
+
+        @Override
+        public long expireAfterCreate(K key, V value, long currentTime) {
+            return Math.max(Duration.between(LocalDateTime.now(), expiryDate.apply(value)).toNanos(), 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
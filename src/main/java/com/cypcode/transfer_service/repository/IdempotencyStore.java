@@ -0,0 +1,60 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Durable home of idempotency records. An entry whose expiry date has passed is treated as absent by every operation,
+ * so a reservation lease or a completed key lapses without any cleanup having run; {@link #purgeExpired} only reclaims
+ * the space. The implementation is chosen with {@code cypcode.service.idempotency.store.type}.
+ */
+public interface IdempotencyStore {
+
+    Idempotency findById(String id);
+
+    Idempotency findByTransferId(long transferId);
+
+    List<Idempotency> findAllById(Collection<String> ids);
+
+    List<Idempotency> findAllByTransferId(Collection<Long> transferIds);
+
+    /**
+     * Returns at most limit entries with a transferId from fromTransferId to toTransferId inclusive, in transferId order,
+     * so a range is read page by page by continuing after the last transferId returned.
+     */
+    List<Idempotency> findByTransferIdRange(long fromTransferId, long toTransferId, int limit);
+
+    /**
+     * Atomically creates a RESERVED entry for the key unless a live entry already holds it, returning true when this
+     * caller won the key.
+     */
+    boolean reserve(String id, long transferId, LocalDateTime leaseExpiry);
+
+    /**
+     * Removes the key if it is still RESERVED under the given transferId.
+     */
+    boolean release(String id, long transferId);
+
+    /**
+     * Inserts or replaces the given entries; all of them are durable when this returns.
+     */
+    void saveAll(List<Idempotency> idempotencies);
+
+    /**
+     * Moves a live entry from one status to another as long as it still carries the given transferId, returning true
+     * when it did.
+     */
+    boolean transition(String id, long transferId, IdempotencyStatus currentStatus, IdempotencyStatus status,
+                       String response, LocalDateTime expiryDate);
+
+    boolean extend(String id, long transferId, IdempotencyStatus status, LocalDateTime expiryDate);
+
+    /**
+     * Deletes at most limit entries that expired before now and returns how many were deleted.
+     */
+    int purgeExpired(LocalDateTime now, int limit);
+}
@@ -0,0 +1,12 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of an idempotency row. Lookups select straight into it, so no managed entity, dirty-checking
+ * snapshot or persistence-context entry is created for data that is only read.
+ */
+public record IdempotencyView(String id, Long transferId, String response, LocalDateTime expiryDate, IdempotencyStatus status) {
+}
@@ -0,0 +1,212 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists completed idempotency records to the {@link IdempotencyStore}, one {@link IdempotencyStore#saveAll} per batch.
+ * <ul>
+ *     <li>{@code direct} writes each record on the caller thread, one commit per record.</li>
+ *     <li>{@code group-commit} queues the record and blocks the caller until the batch holding it has committed, so
+ *     the response is still only acknowledged once the record is durable.</li>
+ *     <li>{@code async} queues the record and returns immediately; a crash can lose records not yet flushed.</li>
+ * </ul>
+ * Batches are cut at {@code batch-size} records or when {@code window-ms} has passed since the first queued record.
+ * A batch that fails is written again record by record, so one bad record does not fail the others queued with it.
+ * Once the writer has stopped, queued modes refuse new records instead of leaving their callers waiting.
+ */
+@Slf4j
+@Component
+public class IdempotencyWriter {
+
+    private final IdempotencyStore idempotencyStore;
+    private final Mode mode;
+    private final int batchSize;
+    private final long windowNanos;
+    private final BlockingQueue<PendingWrite> queue;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public IdempotencyWriter(IdempotencyStore idempotencyStore,
+                             MeterRegistry meterRegistry,
+                             @Value("${cypcode.service.idempotency.writer.mode:direct}") Mode mode,
+                             @Value("${cypcode.service.idempotency.writer.batch-size:128}") int batchSize,
+                             @Value("${cypcode.service.idempotency.writer.window-ms:5}") long windowMs,
+                             @Value("${cypcode.service.idempotency.writer.queue-capacity:10000}") int queueCapacity) {
+        this.idempotencyStore = idempotencyStore;
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizeSummary = DistributionSummary.builder("idempotency.writer.batch.size")
+                .description("Idempotency records written per store batch")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("idempotency.writer.flush")
+                .description("Time to write and commit one idempotency batch")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (mode == Mode.DIRECT) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::drain, "idempotency-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        List<PendingWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    public void write(Idempotency idempotency) {
+        writeAll(List.of(idempotency));
+    }
+
+    public void writeAll(List<Idempotency> idempotencies) {
+        if (idempotencies.isEmpty()) {
+            return;
+        }
+        if (mode == Mode.DIRECT) {
+            flush(idempotencies.stream().map(idempotency -> new PendingWrite(idempotency, null)).toList());
+            return;
+        }
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        for (Idempotency idempotency : idempotencies) {
+            PendingWrite pendingWrite = new PendingWrite(idempotency, mode == Mode.GROUP_COMMIT ? new CompletableFuture<>() : null);
+            if (!running) {
+                throw stopped(idempotency);
+            }
+            try {
+                // blocks when the flusher falls behind, pushing back on the callers
+                queue.put(pendingWrite);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing idempotency record " + idempotency.getId(), e);
+            }
+            // stop() clears running before its last drain: a record queued after that drain is taken back here
+            if (!running && queue.remove(pendingWrite)) {
+                throw stopped(idempotency);
+            }
+            if (pendingWrite.committed() != null) {
+                commits.add(pendingWrite.committed());
+            }
+        }
+        try {
+            CompletableFuture.allOf(commits.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void drain() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < batchSize) {
+                    PendingWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // stop() interrupts the flusher after clearing running; flush what was collected and exit
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private IllegalStateException stopped(Idempotency idempotency) {
+        return new IllegalStateException("Idempotency writer has stopped, record " + idempotency.getId() + " was not written");
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        long start = System.nanoTime();
+        try {
+            idempotencyStore.saveAll(batch.stream().map(PendingWrite::idempotency).toList());
+            batch.forEach(PendingWrite::complete);
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} idempotency records: {}", batch.size(), e.getMessage());
+            if (mode == Mode.DIRECT) {
+                throw e;
+            }
+            if (batch.size() == 1) {
+                batch.get(0).fail(e);
+            } else {
+                flushEach(batch);
+            }
+        } finally {
+            batchSizeSummary.record(batch.size());
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flushEach(List<PendingWrite> batch) {
+        for (PendingWrite pendingWrite : batch) {
+            try {
+                idempotencyStore.saveAll(List.of(pendingWrite.idempotency()));
+                pendingWrite.complete();
+            } catch (RuntimeException e) {
+                log.error("Failed to write idempotency record {}: {}", pendingWrite.idempotency().getId(), e.getMessage());
+                pendingWrite.fail(e);
+            }
+        }
+    }
+
+    public enum Mode {
+        DIRECT,
+        GROUP_COMMIT,
+        ASYNC
+    }
+
+    private record PendingWrite(Idempotency idempotency, CompletableFuture<Void> committed) {
+        void complete() {
+            if (committed != null) {
+                committed.complete(null);
+            }
+        }
+
+        void fail(Throwable cause) {
+            if (committed != null) {
+                committed.completeExceptionally(cause);
+            }
+        }
+    }
+}
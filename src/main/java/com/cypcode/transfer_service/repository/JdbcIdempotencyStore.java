@@ -0,0 +1,174 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keeps idempotency records in the {@code idempotency} table of the service's database. Pointed at a shared
+ * PostgreSQL database, every replica reserves and replays keys against the same rows. Operations join the caller's
+ * transaction, so the outbox can change a record and its own table atomically.
+ */
+@Component
+@ConditionalOnProperty(name = "cypcode.service.idempotency.store.type", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final String UPDATE_SQL = "UPDATE idempotency SET transfer_id = ?, response = ?, expiry_date = ?, status = ? WHERE id = ?";
+    private static final String INSERT_SQL = "INSERT INTO idempotency (transfer_id, response, expiry_date, status, id) VALUES (?, ?, ?, ?, ?)";
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    private final IIdempotencyRepository idempotencyRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcIdempotencyStore(IIdempotencyRepository idempotencyRepository,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Idempotency findById(String id) {
+        return toIdempotency(idempotencyRepository.findIdempotencyById(id), LocalDateTime.now());
+    }
+
+    @Override
+    public Idempotency findByTransferId(long transferId) {
+        return toIdempotency(idempotencyRepository.findIdempotencyByTransferId(transferId), LocalDateTime.now());
+    }
+
+    @Override
+    public List<Idempotency> findAllById(Collection<String> ids) {
+        return findInChunks(ids, idempotencyRepository::findByIdIn);
+    }
+
+    @Override
+    public List<Idempotency> findAllByTransferId(Collection<Long> transferIds) {
+        return findInChunks(transferIds, idempotencyRepository::findByTransferIdIn);
+    }
+
+    @Override
+    public List<Idempotency> findByTransferIdRange(long fromTransferId, long toTransferId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return toIdempotencies(idempotencyRepository.findByTransferIdRange(fromTransferId, toTransferId, now, PageRequest.of(0, limit)), now);
+    }
+
+    /**
+     * The insert relies on the primary key, so it fails when any instance holds the key; a row whose entry or lease
+     * has expired is then taken over with a conditional update.
+     */
+    @Override
+    public boolean reserve(String id, long transferId, LocalDateTime leaseExpiry) {
+        try {
+            return idempotencyRepository.reserve(id, transferId, leaseExpiry) == 1;
+        } catch (DataIntegrityViolationException e) {
+            return idempotencyRepository.reserveExpired(id, transferId, leaseExpiry, LocalDateTime.now(), IdempotencyStatus.RESERVED) == 1;
+        }
+    }
+
+    @Override
+    public boolean release(String id, long transferId) {
+        return idempotencyRepository.release(id, transferId, IdempotencyStatus.RESERVED) == 1;
+    }
+
+    /**
+     * Upserts as a JDBC batch of updates for existing rows followed by a batch of inserts for the rest, in one
+     * transaction.
+     */
+    @Override
+    public void saveAll(List<Idempotency> idempotencies) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, idempotencies, idempotencies.size(), JdbcIdempotencyStore::bind)[0];
+            List<Idempotency> inserts = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    inserts.add(idempotencies.get(i));
+                }
+            }
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserts, inserts.size(), JdbcIdempotencyStore::bind);
+            }
+        });
+    }
+
+    @Override
+    public boolean transition(String id, long transferId, IdempotencyStatus currentStatus, IdempotencyStatus status,
+                              String response, LocalDateTime expiryDate) {
+        return idempotencyRepository.transition(id, transferId, currentStatus, status, response, expiryDate) == 1;
+    }
+
+    @Override
+    public boolean extend(String id, long transferId, IdempotencyStatus status, LocalDateTime expiryDate) {
+        return idempotencyRepository.extend(id, transferId, status, expiryDate) == 1;
+    }
+
+    @Override
+    public int purgeExpired(LocalDateTime now, int limit) {
+        List<String> expiredIds = idempotencyRepository.findExpiredIds(now, PageRequest.of(0, limit));
+        return expiredIds.isEmpty() ? 0 : idempotencyRepository.deleteExpired(expiredIds, now);
+    }
+
+    /**
+     * Looks the distinct values up with one IN query per IN_CHUNK_SIZE of them, which keeps every statement well within
+     * the bind parameter limits of the database however many values are asked for.
+     */
+    private <T> List<Idempotency> findInChunks(Collection<T> values, Function<List<T>, List<IdempotencyView>> query) {
+        LocalDateTime now = LocalDateTime.now();
+        List<T> distinct = List.copyOf(new LinkedHashSet<>(values));
+        List<Idempotency> idempotencies = new ArrayList<>(distinct.size());
+        for (int from = 0; from < distinct.size(); from += IN_CHUNK_SIZE) {
+            idempotencies.addAll(toIdempotencies(query.apply(distinct.subList(from, Math.min(from + IN_CHUNK_SIZE, distinct.size()))), now));
+        }
+        return idempotencies;
+    }
+
+    private static List<Idempotency> toIdempotencies(List<IdempotencyView> views, LocalDateTime now) {
+        List<Idempotency> idempotencies = new ArrayList<>(views.size());
+        for (IdempotencyView view : views) {
+            Idempotency idempotency = toIdempotency(view, now);
+            if (idempotency != null) {
+                idempotencies.add(idempotency);
+            }
+        }
+        return idempotencies;
+    }
+
+    private static Idempotency toIdempotency(IdempotencyView view, LocalDateTime now) {
+        if (view == null || !view.expiryDate().isAfter(now)) {
+            return null;
+        }
+        return Idempotency.builder()
+                .id(view.id())
+                .transferId(view.transferId())
+                .response(view.response())
+                .expiryDate(view.expiryDate())
+                .status(view.status())
+                .build();
+    }
+
+    private static void bind(PreparedStatement statement, Idempotency idempotency) throws SQLException {
+        statement.setLong(1, idempotency.getTransferId());
+        statement.setString(2, idempotency.getResponse());
+        statement.setTimestamp(3, Timestamp.valueOf(idempotency.getExpiryDate()));
+        statement.setString(4, idempotency.getStatus().name());
+        statement.setString(5, idempotency.getId());
+    }
+}
@@ -0,0 +1,476 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded idempotency store for a single node: an append-only log of records in a memory-mapped file, with an
+ * in-heap index from key (and transferId, kept in order for range reads) to the offset of the key's latest record. Reads decode the record straight
+ * from the mapping without locking; writes append under one lock, which makes reserve a native put-if-absent, and
+ * publish the new offset only once the record is complete.
+ * <p>
+ * Every record carries its expiry date, so expired keys are absent to readers at once and are left out of the index
+ * when the file is reopened. When the file is full, or a purge finds it mostly superseded or expired records, the live
+ * records are copied into a new file that replaces it. With {@code sync-writes} each write is forced to disk before it
+ * returns; without it, records survive a process crash but not a machine crash. On restart the log is replayed up to
+ * the first incomplete or corrupt record.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cypcode.service.idempotency.store.type", havingValue = "mapped")
+public class MappedIdempotencyStore implements IdempotencyStore {
+
+    private static final int MAGIC = 0x49444d31;
+    private static final int FILE_HEADER_BYTES = 8;
+    // length (int), crc32 of the rest of the record (int)
+    private static final int RECORD_HEADER_BYTES = 8;
+    // status (byte), transferId (long), expiry in epoch micros (long), key length (short), response length (int)
+    private static final int RECORD_FIXED_BYTES = RECORD_HEADER_BYTES + 1 + 8 + 8 + 2 + 4;
+    private static final byte TOMBSTONE = 0;
+    private static final IdempotencyStatus[] STATUSES = IdempotencyStatus.values();
+
+    private final Path path;
+    private final int initialCapacity;
+    private final boolean syncWrites;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile Segment segment;
+
+    public MappedIdempotencyStore(@Value("${cypcode.service.idempotency.store.mapped.path:data/idempotency.store}") Path path,
+                                  @Value("${cypcode.service.idempotency.store.mapped.capacity-mb:64}") int capacityMb,
+                                  @Value("${cypcode.service.idempotency.store.mapped.sync-writes:true}") boolean syncWrites) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.initialCapacity = (int) Math.min((long) capacityMb << 20, Integer.MAX_VALUE);
+        this.syncWrites = syncWrites;
+        if (this.path.getParent() != null) {
+            Files.createDirectories(this.path.getParent());
+        }
+        this.segment = open(this.path, initialCapacity);
+        log.info("Idempotency store {} opened with {} live keys", this.path, segment.offsets.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            segment.buffer.force();
+            segment.channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Idempotency findById(String id) {
+        Segment current = segment;
+        Integer offset = current.offsets.get(id);
+        return offset == null ? null : read(current, offset, id, nowMicros());
+    }
+
+    @Override
+    public Idempotency findByTransferId(long transferId) {
+        Segment current = segment;
+        String id = current.keysByTransferId.get(transferId);
+        Integer offset = id == null ? null : current.offsets.get(id);
+        Idempotency idempotency = offset == null ? null : read(current, offset, id, nowMicros());
+        return idempotency != null && idempotency.getTransferId() == transferId ? idempotency : null;
+    }
+
+    @Override
+    public List<Idempotency> findAllById(Collection<String> ids) {
+        Segment current = segment;
+        long now = nowMicros();
+        List<Idempotency> idempotencies = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Integer offset = current.offsets.get(id);
+            Idempotency idempotency = offset == null ? null : read(current, offset, id, now);
+            if (idempotency != null) {
+                idempotencies.add(idempotency);
+            }
+        }
+        return idempotencies;
+    }
+
+    @Override
+    public List<Idempotency> findAllByTransferId(Collection<Long> transferIds) {
+        List<Idempotency> idempotencies = new ArrayList<>(transferIds.size());
+        for (long transferId : new LinkedHashSet<>(transferIds)) {
+            Idempotency idempotency = findByTransferId(transferId);
+            if (idempotency != null) {
+                idempotencies.add(idempotency);
+            }
+        }
+        return idempotencies;
+    }
+
+    @Override
+    public List<Idempotency> findByTransferIdRange(long fromTransferId, long toTransferId, int limit) {
+        Segment current = segment;
+        long now = nowMicros();
+        List<Idempotency> idempotencies = new ArrayList<>(Math.min(limit, 1024));
+        for (Map.Entry<Long, String> entry : current.keysByTransferId.subMap(fromTransferId, true, toTransferId, true).entrySet()) {
+            if (idempotencies.size() == limit) {
+                break;
+            }
+            Integer offset = current.offsets.get(entry.getValue());
+            Idempotency idempotency = offset == null ? null : read(current, offset, entry.getValue(), now);
+            if (idempotency != null && idempotency.getTransferId() == entry.getKey().longValue()) {
+                idempotencies.add(idempotency);
+            }
+        }
+        return idempotencies;
+    }
+
+    @Override
+    public boolean reserve(String id, long transferId, LocalDateTime leaseExpiry) {
+        writeLock.lock();
+        try {
+            if (findById(id) != null) {
+                return false;
+            }
+            append(id, IdempotencyStatus.RESERVED, transferId, null, leaseExpiry);
+            sync();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean release(String id, long transferId) {
+        writeLock.lock();
+        try {
+            Idempotency current = findById(id);
+            if (current == null || current.getStatus() != IdempotencyStatus.RESERVED || current.getTransferId() != transferId) {
+                return false;
+            }
+            append(id, null, current.getTransferId(), null, current.getExpiryDate());
+            sync();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(List<Idempotency> idempotencies) {
+        writeLock.lock();
+        try {
+            for (Idempotency idempotency : idempotencies) {
+                append(idempotency.getId(), idempotency.getStatus(), idempotency.getTransferId(), idempotency.getResponse(),
+                        idempotency.getExpiryDate());
+            }
+            sync();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean transition(String id, long transferId, IdempotencyStatus currentStatus, IdempotencyStatus status,
+                              String response, LocalDateTime expiryDate) {
+        writeLock.lock();
+        try {
+            Idempotency current = findById(id);
+            if (current == null || current.getTransferId() != transferId || current.getStatus() != currentStatus) {
+                return false;
+            }
+            append(id, status, transferId, response, expiryDate);
+            sync();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean extend(String id, long transferId, IdempotencyStatus status, LocalDateTime expiryDate) {
+        writeLock.lock();
+        try {
+            Idempotency current = findById(id);
+            if (current == null || current.getTransferId() != transferId || current.getStatus() != status) {
+                return false;
+            }
+            append(id, status, transferId, current.getResponse(), expiryDate);
+            sync();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drops expired keys from the index; their records need no tombstone, since a replay skips expired records too.
+     * The file is compacted once superseded and expired records outweigh the live ones and fill a quarter of it.
+     */
+    @Override
+    public int purgeExpired(LocalDateTime now, int limit) {
+        long nowMicros = toMicros(now);
+        writeLock.lock();
+        try {
+            Segment current = segment;
+            int purged = 0;
+            Iterator<Map.Entry<String, Integer>> entries = current.offsets.entrySet().iterator();
+            while (purged < limit && entries.hasNext()) {
+                Map.Entry<String, Integer> entry = entries.next();
+                int offset = entry.getValue();
+                if (current.buffer.getLong(offset + RECORD_HEADER_BYTES + 9) < nowMicros) {
+                    entries.remove();
+                    current.keysByTransferId.remove(current.buffer.getLong(offset + RECORD_HEADER_BYTES + 1), entry.getKey());
+                    current.liveBytes -= current.buffer.getInt(offset);
+                    purged++;
+                }
+            }
+            long deadBytes = current.position - FILE_HEADER_BYTES - current.liveBytes;
+            if (deadBytes > current.liveBytes && deadBytes > current.buffer.capacity() / 4) {
+                compact(0);
+            }
+            return purged;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Idempotency read(Segment current, int offset, String id, long nowMicros) {
+        MappedByteBuffer buffer = current.buffer;
+        int field = offset + RECORD_HEADER_BYTES;
+        long expiryMicros = buffer.getLong(field + 9);
+        if (expiryMicros <= nowMicros) {
+            return null;
+        }
+        int keyLength = buffer.getShort(field + 17);
+        int responseOffset = field + 19 + keyLength;
+        int responseLength = buffer.getInt(responseOffset);
+        String response = null;
+        if (responseLength >= 0) {
+            byte[] bytes = new byte[responseLength];
+            buffer.get(responseOffset + 4, bytes);
+            response = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return Idempotency.builder()
+                .id(id)
+                .transferId(buffer.getLong(field + 1))
+                .response(response)
+                .expiryDate(fromMicros(expiryMicros))
+                .status(STATUSES[buffer.get(field) - 1])
+                .build();
+    }
+
+    /**
+     * Writes the record and publishes it in the index; a null status writes a tombstone that removes the key. The
+     * record length is written last, so a record cut short by a crash reads as the end of the log.
+     */
+    private void append(String id, IdempotencyStatus status, long transferId, String response, LocalDateTime expiryDate) {
+        byte[] record = encode(id, status, transferId, response, expiryDate);
+        if (segment.position + record.length > segment.buffer.capacity()) {
+            compact(record.length);
+        }
+        Segment current = segment;
+        int offset = current.position;
+        current.buffer.put(offset + 4, record, 4, record.length - 4);
+        current.buffer.putInt(offset, record.length);
+        current.position += record.length;
+        apply(current, id, status == null ? TOMBSTONE : (byte) (status.ordinal() + 1), transferId, offset, record.length);
+    }
+
+    private static void apply(Segment current, String id, byte status, long transferId, int offset, int length) {
+        Integer previous = status == TOMBSTONE ? current.offsets.remove(id) : current.offsets.put(id, offset);
+        if (previous != null) {
+            current.liveBytes -= current.buffer.getInt(previous);
+            long previousTransferId = current.buffer.getLong(previous + RECORD_HEADER_BYTES + 1);
+            if (status == TOMBSTONE || previousTransferId != transferId) {
+                current.keysByTransferId.remove(previousTransferId, id);
+            }
+        }
+        if (status != TOMBSTONE) {
+            current.keysByTransferId.put(transferId, id);
+            current.liveBytes += length;
+        }
+    }
+
+    private void sync() {
+        if (syncWrites) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * Copies the live records into a new file with room for at least the given number of extra bytes and swaps it in.
+     * Readers still holding the old segment keep reading its mapping, which stays valid until it is garbage collected.
+     */
+    private void compact(int extraBytes) {
+        Segment current = segment;
+        long nowMicros = nowMicros();
+        long required = FILE_HEADER_BYTES + (long) current.liveBytes + extraBytes;
+        long capacity = Math.max(initialCapacity, Math.min(required * 2, Integer.MAX_VALUE));
+        if (required > capacity) {
+            throw new IllegalStateException(String.format("Idempotency store %s is full", path));
+        }
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            Files.deleteIfExists(compacted);
+            Segment next = open(compacted, (int) capacity);
+            for (Map.Entry<String, Integer> entry : current.offsets.entrySet()) {
+                int offset = entry.getValue();
+                if (current.buffer.getLong(offset + RECORD_HEADER_BYTES + 9) <= nowMicros) {
+                    continue;
+                }
+                int length = current.buffer.getInt(offset);
+                byte[] record = new byte[length];
+                current.buffer.get(offset, record);
+                next.buffer.put(next.position, record);
+                apply(next, entry.getKey(), record[RECORD_HEADER_BYTES], current.buffer.getLong(offset + RECORD_HEADER_BYTES + 1),
+                        next.position, length);
+                next.position += length;
+            }
+            next.buffer.force();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            segment = next;
+            current.channel.close();
+            log.info("Idempotency store {} compacted to {} live keys, {} of {} bytes", path, next.offsets.size(), next.position, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Segment open(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, capacity));
+        Segment segment = new Segment(channel, buffer);
+        if (size == 0) {
+            buffer.putInt(0, MAGIC);
+        } else if (buffer.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException(String.format("%s is not an idempotency store", path));
+        }
+        segment.position = FILE_HEADER_BYTES;
+        recover(path, segment);
+        return segment;
+    }
+
+    private static void recover(Path path, Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = FILE_HEADER_BYTES;
+        while (position + RECORD_FIXED_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < RECORD_FIXED_BYTES || position + (long) length > buffer.capacity()
+                    || buffer.getInt(position + 4) != checksum(buffer, position, length)) {
+                log.warn("Idempotency store {} has a corrupt record at offset {}, discarding the rest of the log", path, position);
+                for (int i = position; i < buffer.capacity(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                break;
+            }
+            int field = position + RECORD_HEADER_BYTES;
+            byte[] key = new byte[buffer.getShort(field + 17)];
+            buffer.get(field + 19, key);
+            apply(segment, new String(key, StandardCharsets.UTF_8), buffer.get(field), buffer.getLong(field + 1), position, length);
+            position += length;
+        }
+        segment.position = position;
+        long nowMicros = nowMicros();
+        segment.offsets.entrySet().removeIf(entry -> {
+            int offset = entry.getValue();
+            if (buffer.getLong(offset + RECORD_HEADER_BYTES + 9) > nowMicros) {
+                return false;
+            }
+            segment.keysByTransferId.remove(buffer.getLong(offset + RECORD_HEADER_BYTES + 1), entry.getKey());
+            segment.liveBytes -= buffer.getInt(offset);
+            return true;
+        });
+    }
+
+    private static byte[] encode(String id, IdempotencyStatus status, long transferId, String response, LocalDateTime expiryDate) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        byte[] body = response == null ? null : response.getBytes(StandardCharsets.UTF_8);
+        if (key.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Idempotency key is too long");
+        }
+        int length = RECORD_FIXED_BYTES + key.length + (body == null ? 0 : body.length);
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length)
+                .putInt(0)
+                .put(status == null ? TOMBSTONE : (byte) (status.ordinal() + 1))
+                .putLong(transferId)
+                .putLong(toMicros(expiryDate))
+                .putShort((short) key.length)
+                .put(key)
+                .putInt(body == null ? -1 : body.length);
+        if (body != null) {
+            record.put(body);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_BYTES, length - RECORD_HEADER_BYTES);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int position, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(position + RECORD_HEADER_BYTES, length - RECORD_HEADER_BYTES));
+        return (int) crc.getValue();
+    }
+
+    private static long nowMicros() {
+        return toMicros(LocalDateTime.now());
+    }
+
+    private static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * One mapped file and its index. Readers take the current segment once and use only its buffer and maps; the
+     * write position and live byte count are only touched under the write lock.
+     */
+    private static final class Segment {
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final Map<String, Integer> offsets = new ConcurrentHashMap<>();
+        final ConcurrentNavigableMap<Long, String> keysByTransferId = new ConcurrentSkipListMap<>();
+        int position;
+        long liveBytes;
+
+        Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.cypcode.transfer_service.service;
+
+import com.cypcode.transfer_service.entity.dto.BatchJobDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+
+import java.util.List;
+
+public interface BatchJobService {
+    public BatchJobDTO submitJob(List<TransferDTO> transferDTOList);
+    public BatchJobDTO getJob(String jobId, int page, int size);
+    public void dispatchJobs();
+}
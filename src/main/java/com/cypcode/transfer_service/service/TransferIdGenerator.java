@@ -0,0 +1,9 @@
+package com.cypcode.transfer_service.service;
+
+/**
+ * Source of transferIds that stay unique across replicas and restarts.
+ * The implementation is chosen with {@code cypcode.service.transfer.id-generator.type}.
+ */
+public interface TransferIdGenerator {
+    public long nextId();
+}
@@ -1,8 +1,13 @@
 package com.cypcode.transfer_service.service;
 
+import com.cypcode.transfer_service.entity.dto.BatchItemResultDTO;
 import com.cypcode.transfer_service.entity.dto.IdempotencyDTO;
 import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.entity.dto.TransferStatusQueryDTO;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
@@ -10,5 +15,9 @@ public interface TransferService {
     public IdempotencyDTO getTransferById(long id);
     public String createTransfer(TransferDTO transferDTO);
     public IdempotencyDTO createTransferWithIndempotency(TransferDTO transferDTO, String indempotencyId);
-    public void batchTransfer(List<TransferDTO> transferDTOList) throws ExecutionException, InterruptedException;
+    public byte[] findReplayResponse(String indempotencyId);
+    public List<BatchItemResultDTO> batchTransfer(List<TransferDTO> transferDTOList) throws ExecutionException, InterruptedException;
+    public void streamTransfer(InputStream input, OutputStream output) throws IOException, InterruptedException;
+    public void streamTransferStatuses(TransferStatusQueryDTO query, OutputStream output) throws IOException;
+    public void streamTransferStatusRange(long fromTransferId, long toTransferId, OutputStream output) throws IOException;
 }
@@ -0,0 +1,355 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.common.exception.LedgerOverloadedException;
+import com.cypcode.transfer_service.common.exception.LedgerUnavailableException;
+import com.cypcode.transfer_service.configuration.LedgerFeignClient;
+import com.cypcode.transfer_service.entity.dto.LedgerTransferResultDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import feign.FeignException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends single ledger transfers through per-account lanes. Each fromAccountId with transfers waiting has its own FIFO
+ * lane, drained by one task at a time on a pool of {@code threads} threads, so transfers from one account reach the
+ * ledger one call at a time and in arrival order, while other accounts keep calling the ledger in parallel. A lane
+ * exists only while its account has transfers waiting or in flight, and a drain task hands its thread back after each
+ * call, so a hot account holds at most one thread and never delays an unrelated one.
+ * <p>
+ * When a lane holds several transfers, up to {@code max-coalesce} of them go to the ledger's bulk endpoint as one call,
+ * in arrival order, instead of one call each. This drains a hot account's backlog in a few round trips. Once the
+ * ledger rejects the bulk endpoint, lanes send item by item until {@code reprobe-interval-ms} has passed. A coalesced
+ * call that fails without an answer fails every transfer in it, the same way a single call fails.
+ * <p>
+ * A caller waits at most {@code timeout-ms} for its call to start. A transfer still queued by then is dropped from the
+ * lane, and the caller sees the ledger as unavailable, as a timed out ledger call would. A transfer whose call has
+ * started is waited for until the call ends, which the ledger client's own read timeout bounds, so an answer the
+ * ledger gives is never lost.
+ */
+@Slf4j
+@Component
+public class AccountLaneDispatcher {
+
+    private static final Set<Integer> BULK_UNSUPPORTED_STATUSES = Set.of(
+            HttpStatus.NOT_FOUND.value(), HttpStatus.METHOD_NOT_ALLOWED.value(), HttpStatus.NOT_IMPLEMENTED.value());
+
+    private final LedgerFeignClient ledgerFeignClient;
+    private final TransferMetrics transferMetrics;
+    private final boolean enabled;
+    private final int threads;
+    private final int queueCapacity;
+    private final int maxCoalesce;
+    private final long timeoutMs;
+    private final boolean bulkEnabled;
+    private final long bulkReprobeIntervalMs;
+    private final ConcurrentMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Timer waitTimer;
+    private final DistributionSummary coalescedSummary;
+
+    // set when the ledger rejects the bulk endpoint; lanes use per-item calls until then
+    private volatile long bulkUnsupportedUntil;
+    private volatile boolean running;
+    private ExecutorService executor;
+
+    public AccountLaneDispatcher(LedgerFeignClient ledgerFeignClient,
+                                 TransferMetrics transferMetrics,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${cypcode.service.transfer.lanes.enabled:false}") boolean enabled,
+                                 @Value("${cypcode.service.transfer.lanes.threads:32}") int threads,
+                                 @Value("${cypcode.service.transfer.lanes.queue-capacity:1000}") int queueCapacity,
+                                 @Value("${cypcode.service.transfer.lanes.max-coalesce:50}") int maxCoalesce,
+                                 @Value("${cypcode.service.transfer.lanes.timeout-ms:${spring.cloud.openfeign.client.config.ledger-feign-client.read-timeout:5000}}") long timeoutMs,
+                                 @Value("${cypcode.service.ledger.bulk.enabled:true}") boolean bulkEnabled,
+                                 @Value("${cypcode.service.ledger.bulk.reprobe-interval-ms:600000}") long bulkReprobeIntervalMs) {
+        this.ledgerFeignClient = ledgerFeignClient;
+        this.transferMetrics = transferMetrics;
+        this.enabled = enabled;
+        this.threads = Math.max(threads, 1);
+        this.queueCapacity = queueCapacity;
+        this.maxCoalesce = Math.max(maxCoalesce, 1);
+        this.timeoutMs = timeoutMs;
+        this.bulkEnabled = bulkEnabled;
+        this.bulkReprobeIntervalMs = bulkReprobeIntervalMs;
+        Gauge.builder("transfer.lane.depth", depth, AtomicInteger::get)
+                .description("Transfers waiting in account lanes")
+                .register(meterRegistry);
+        Gauge.builder("transfer.lane.accounts", lanes, Map::size)
+                .description("Accounts with transfers waiting or in flight in a lane")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("transfer.lane.wait")
+                .description("Time a transfer waits in its account lane before its ledger call starts")
+                .register(meterRegistry);
+        this.coalescedSummary = DistributionSummary.builder("transfer.lane.coalesced")
+                .description("Transfers sent per ledger call from an account lane")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads,
+                task -> Thread.ofPlatform().daemon().name("transfer-lane-" + threadIndex.getAndIncrement()).unstarted(task));
+        running = true;
+    }
+
+    /**
+     * Stops the lanes; transfers still queued fail as if the ledger were unavailable, which hands them to the outbox.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        for (Long accountId : lanes.keySet()) {
+            Lane lane = lanes.remove(accountId);
+            if (lane != null) {
+                fail(lane, new LedgerUnavailableException("Ledger unavailable: transfer lanes are shutting down"));
+            }
+        }
+    }
+
+    /**
+     * Queues the transfer on its account's lane and waits for the ledger's answer, which is returned or thrown exactly
+     * as {@link LedgerFeignClient#createTransfer} would. A full lane sheds the transfer.
+     */
+    public ResponseEntity<String> dispatch(TransferDTO transferDTO) {
+        long accountId = transferDTO.getFromAccountId();
+        PendingTransfer pending = new PendingTransfer(transferDTO, System.nanoTime(), new AtomicBoolean(), new CompletableFuture<>());
+        boolean[] queued = new boolean[1];
+        boolean[] created = new boolean[1];
+        Lane lane = running ? lanes.compute(accountId, (id, current) -> {
+            Lane target = current;
+            if (target == null) {
+                target = new Lane(id);
+                created[0] = true;
+            }
+            if (target.queue.size() < queueCapacity) {
+                target.queue.add(pending);
+                depth.incrementAndGet();
+                queued[0] = true;
+            }
+            // a new lane that turned the transfer away is not kept
+            return queued[0] || !created[0] ? target : null;
+        }) : null;
+        if (!queued[0]) {
+            throw new LedgerOverloadedException(String.format("Transfer lane of account %d is full, retry the request", accountId));
+        }
+        if (created[0]) {
+            // the lane is in the map for as long as a drain task is scheduled or running for it
+            schedule(lane);
+        }
+        return await(pending);
+    }
+
+    private ResponseEntity<String> await(PendingTransfer pending) {
+        try {
+            try {
+                return pending.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pending.abandon()) {
+                    LedgerUnavailableException timedOut = new LedgerUnavailableException(String.format(
+                            "Ledger unavailable: transfer %d still queued after %d ms", pending.transfer.getTransferId(), timeoutMs));
+                    pending.result.completeExceptionally(timedOut);
+                    throw timedOut;
+                }
+                // the call is under way: its answer, or its own read timeout, decides the outcome
+                return pending.result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerUnavailableException("Ledger unavailable: interrupted while waiting for the transfer lane");
+        }
+    }
+
+    private void schedule(Lane lane) {
+        try {
+            executor.execute(() -> drain(lane));
+        } catch (RejectedExecutionException e) {
+            // the lanes are shutting down
+            lanes.remove(lane.accountId, lane);
+            fail(lane, new LedgerUnavailableException("Ledger unavailable: transfer lanes are shutting down"));
+        }
+    }
+
+    /**
+     * Sends the transfers at the head of the lane as one call, then schedules the lane again if more arrived, or
+     * retires it. Rescheduling instead of looping lets other accounts' lanes take the thread in between.
+     */
+    private void drain(Lane lane) {
+        List<PendingTransfer> run = new ArrayList<>();
+        lanes.computeIfPresent(lane.accountId, (id, current) -> {
+            PendingTransfer next;
+            while (run.size() < maxCoalesce && (next = current.queue.poll()) != null) {
+                depth.decrementAndGet();
+                if (!next.result.isDone()) {
+                    run.add(next);
+                }
+            }
+            return current;
+        });
+        if (!run.isEmpty()) {
+            long now = System.nanoTime();
+            run.forEach(pending -> waitTimer.record(now - pending.enqueuedNanos, TimeUnit.NANOSECONDS));
+            try {
+                send(run);
+            } catch (RuntimeException e) {
+                run.forEach(pending -> pending.result.completeExceptionally(e));
+            }
+        }
+        Lane remaining = lanes.computeIfPresent(lane.accountId, (id, current) -> current.queue.isEmpty() ? null : current);
+        if (remaining != null) {
+            schedule(remaining);
+        }
+    }
+
+    private void fail(Lane lane, RuntimeException cause) {
+        PendingTransfer pending;
+        while ((pending = lane.queue.poll()) != null) {
+            depth.decrementAndGet();
+            pending.result.completeExceptionally(cause);
+        }
+    }
+
+    private void send(List<PendingTransfer> run) {
+        if (run.size() > 1 && bulkEnabled && System.currentTimeMillis() >= bulkUnsupportedUntil) {
+            List<PendingTransfer> started = run.stream().filter(PendingTransfer::start).toList();
+            if (started.size() > 1 && sendBulk(started)) {
+                return;
+            }
+            started.forEach(this::sendOne);
+            return;
+        }
+        for (PendingTransfer pending : run) {
+            // a transfer whose caller gave up waiting is not sent
+            if (pending.start()) {
+                sendOne(pending);
+            }
+        }
+    }
+
+    private void sendOne(PendingTransfer pending) {
+        coalescedSummary.record(1);
+        long start = System.nanoTime();
+        try {
+            pending.result.complete(ledgerFeignClient.createTransfer(pending.transfer));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        } finally {
+            transferMetrics.recordLedgerCall(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Sends the run as one bulk call and answers each transfer with its own outcome. Returns false, having answered
+     * none, when the ledger does not support bulk transfers.
+     */
+    private boolean sendBulk(List<PendingTransfer> run) {
+        List<TransferDTO> payload = run.stream().map(PendingTransfer::transfer).toList();
+        long start = System.nanoTime();
+        try {
+            ResponseEntity<List<LedgerTransferResultDTO>> response = ledgerFeignClient.createTransfers(payload);
+            Map<Long, LedgerTransferResultDTO> outcomes = new HashMap<>();
+            if (response.getBody() != null) {
+                response.getBody().forEach(outcome -> outcomes.put(outcome.getTransferId(), outcome));
+            }
+            for (PendingTransfer pending : run) {
+                LedgerTransferResultDTO outcome = outcomes.get(pending.transfer.getTransferId());
+                if (outcome == null) {
+                    pending.result.completeExceptionally(new LedgerUnavailableException("Ledger unavailable: no result returned by ledger"));
+                } else {
+                    pending.result.complete(ResponseEntity.status(outcome.getStatus()).body(outcome.getResponse()));
+                }
+            }
+        } catch (FeignException.FeignClientException e) {
+            if (BULK_UNSUPPORTED_STATUSES.contains(e.status())) {
+                log.warn("Ledger bulk transfer endpoint unavailable ({}), lanes fall back to per-item calls", e.status());
+                bulkUnsupportedUntil = System.currentTimeMillis() + bulkReprobeIntervalMs;
+                return false;
+            }
+            // a rejection of the whole call answers every transfer in it, as the single call's fallback does
+            run.forEach(pending -> pending.result.complete(ResponseEntity.status(e.status()).body(e.contentUTF8())));
+        } catch (LedgerOverloadedException e) {
+            run.forEach(pending -> pending.result.completeExceptionally(e));
+        } catch (RuntimeException e) {
+            log.error("Coalesced transfer of {} items failed: {}", run.size(), e.getMessage());
+            LedgerUnavailableException unavailable = new LedgerUnavailableException(String.format("Ledger unavailable: %s", e.getMessage()));
+            run.forEach(pending -> pending.result.completeExceptionally(unavailable));
+        } finally {
+            transferMetrics.recordBulkLedgerCall(System.nanoTime() - start);
+        }
+        coalescedSummary.record(run.size());
+        return true;
+    }
+
+    /**
+     * {@code started} is claimed exactly once: by the lane just before the ledger call, or by a caller that timed out
+     * first, in which case the transfer is never sent.
+     */
+    private record PendingTransfer(TransferDTO transfer, long enqueuedNanos, AtomicBoolean started,
+                                   CompletableFuture<ResponseEntity<String>> result) {
+        boolean start() {
+            return started.compareAndSet(false, true);
+        }
+
+        boolean abandon() {
+            return started.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Transfers waiting for one account; only read and changed inside the lanes map's compute calls for its key.
+     */
+    private static final class Lane {
+        final long accountId;
+        final Queue<PendingTransfer> queue = new ArrayDeque<>();
+
+        Lane(long accountId) {
+            this.accountId = accountId;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.entity.BatchJob;
+import com.cypcode.transfer_service.entity.BatchJobItem;
+import com.cypcode.transfer_service.entity.BatchJobItemStatus;
+import com.cypcode.transfer_service.entity.BatchJobStatus;
+import com.cypcode.transfer_service.entity.dto.BatchItemResultDTO;
+import com.cypcode.transfer_service.entity.dto.BatchJobDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.repository.IBatchJobItemRepository;
+import com.cypcode.transfer_service.repository.IBatchJobRepository;
+import com.cypcode.transfer_service.service.BatchJobService;
+import com.cypcode.transfer_service.service.TransferIdGenerator;
+import com.cypcode.transfer_service.service.TransferService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Persists large batches as jobs and works through them in the background, a chunk at a time, through the same
+ * idempotent batch path as the synchronous endpoint. Every item carries a fixed transfer id, so a job picked up again
+ * after a restart replays the items that already reached the ledger instead of sending them twice.
+ */
+@Slf4j
+@Service
+public class BatchJobServiceImpl implements BatchJobService {
+
+    @Autowired
+    private IBatchJobRepository batchJobRepository;
+
+    @Autowired
+    private IBatchJobItemRepository batchJobItemRepository;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferIdGenerator transferIdGenerator;
+
+    @Autowired
+    @Qualifier("batchJobExecutor")
+    private Executor batchJobExecutor;
+
+    @Value("${cypcode.service.transfer.batch.job.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${cypcode.service.transfer.batch.job.lease-ms:300000}")
+    private long leaseMs;
+
+    private final Semaphore jobSlots;
+    private final TransactionTemplate transactionTemplate;
+
+    public BatchJobServiceImpl(PlatformTransactionManager transactionManager,
+                               @Value("${cypcode.service.transfer.batch.job.max-concurrent-jobs:2}") int maxConcurrentJobs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobSlots = new Semaphore(maxConcurrentJobs);
+    }
+
+    @Override
+    @Transactional
+    public BatchJobDTO submitJob(List<TransferDTO> transferDTOList) {
+        LocalDateTime now = LocalDateTime.now();
+        BatchJob job = batchJobRepository.save(BatchJob.builder()
+                .id(UUID.randomUUID().toString())
+                .status(BatchJobStatus.SUBMITTED)
+                .totalItems(transferDTOList.size())
+                .createdDate(now)
+                .updatedDate(now)
+                .build());
+
+        List<BatchJobItem> items = new ArrayList<>(transferDTOList.size());
+        for (int index = 0; index < transferDTOList.size(); index++) {
+            TransferDTO transfer = transferDTOList.get(index);
+            items.add(BatchJobItem.builder()
+                    .id(job.getId() + "-" + index)
+                    .jobId(job.getId())
+                    .itemIndex(index)
+                    .transferId(transfer.getTransferId() > 0 ? transfer.getTransferId() : transferIdGenerator.nextId())
+                    .fromAccountId(transfer.getFromAccountId())
+                    .toAccountId(transfer.getToAccountId())
+                    .amount(transfer.getAmount())
+                    .status(BatchJobItemStatus.PENDING)
+                    .build());
+        }
+        batchJobRepository.flush();
+        batchJobItemRepository.insertAll(items);
+        log.info("Batch job {} submitted: {} items", job.getId(), items.size());
+        return mapToBatchJobDTO(job, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BatchJobDTO getJob(String jobId, int page, int size) {
+        BatchJob job = batchJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return null;
+        }
+        Page<BatchJobItem> items = batchJobItemRepository.findByJobIdOrderByItemIndex(jobId, PageRequest.of(page, size));
+        return mapToBatchJobDTO(job, items.getContent());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() {
+        dispatchJobs();
+    }
+
+    /**
+     * Claims waiting or abandoned jobs while there are free job slots and hands each to the job executor.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${cypcode.service.transfer.batch.job.poll-interval-ms:1000}")
+    public void dispatchJobs() {
+        while (jobSlots.tryAcquire()) {
+            String jobId = claimNextJob();
+            if (jobId == null) {
+                jobSlots.release();
+                return;
+            }
+            try {
+                batchJobExecutor.execute(() -> {
+                    try {
+                        runJob(jobId);
+                    } finally {
+                        jobSlots.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // the lease lapses and the job is claimed again on a later poll
+                jobSlots.release();
+                log.error("Batch job {} could not be started: {}", jobId, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private String claimNextJob() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> candidates = batchJobRepository.findClaimableIds(BatchJobStatus.SUBMITTED, BatchJobStatus.RUNNING,
+                now, PageRequest.of(0, 10));
+        for (String jobId : candidates) {
+            if (batchJobRepository.claim(jobId, BatchJobStatus.SUBMITTED, BatchJobStatus.RUNNING, leaseExpiry(), now) == 1) {
+                return jobId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Processes the job's pending items one chunk at a time, so at most chunkSize items are in memory and the
+     * ledger sees no more than the batch path's own concurrency limit. Progress is committed after every chunk.
+     */
+    void runJob(String jobId) {
+        log.info("Batch job {} started", jobId);
+        try {
+            List<BatchJobItem> chunk;
+            while (!(chunk = batchJobItemRepository.findByJobIdAndStatusOrderByItemIndex(jobId, BatchJobItemStatus.PENDING,
+                    PageRequest.of(0, chunkSize))).isEmpty()) {
+                List<BatchItemResultDTO> results = transferService.batchTransfer(chunk.stream().map(this::mapToTransferDTO).toList());
+                int completed = 0;
+                int failed = 0;
+                for (int index = 0; index < chunk.size(); index++) {
+                    BatchJobItem item = chunk.get(index);
+                    BatchItemResultDTO result = results.get(index);
+                    item.setStatus(BatchJobItemStatus.valueOf(result.getStatus().name()));
+                    item.setResponse(result.getResponse());
+                    if (item.getStatus() == BatchJobItemStatus.FAILED) {
+                        failed++;
+                    } else {
+                        completed++;
+                    }
+                }
+                List<BatchJobItem> outcomes = chunk;
+                int completedCount = completed;
+                int failedCount = failed;
+                // item outcomes and job counters commit together so the progress counts never drift from the items
+                transactionTemplate.executeWithoutResult(status -> {
+                    batchJobItemRepository.updateOutcomes(outcomes);
+                    batchJobRepository.recordProgress(jobId, completedCount, failedCount, leaseExpiry(), LocalDateTime.now());
+                });
+            }
+            batchJobRepository.updateStatus(jobId, BatchJobStatus.COMPLETED, LocalDateTime.now());
+            log.info("Batch job {} completed", jobId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Batch job {} interrupted, it resumes once its lease expires", jobId);
+        } catch (Exception e) {
+            log.error("Batch job {} stopped: {}, it resumes once its lease expires", jobId, e.getMessage());
+        }
+    }
+
+    private LocalDateTime leaseExpiry() {
+        return LocalDateTime.now().plus(Duration.ofMillis(leaseMs));
+    }
+
+    private TransferDTO mapToTransferDTO(BatchJobItem item) {
+        return TransferDTO.builder()
+                .transferId(item.getTransferId())
+                .fromAccountId(item.getFromAccountId())
+                .toAccountId(item.getToAccountId())
+                .amount(item.getAmount())
+                .build();
+    }
+
+    private BatchJobDTO mapToBatchJobDTO(BatchJob job, List<BatchJobItem> items) {
+        return BatchJobDTO.builder()
+                .jobId(job.getId())
+                .status(job.getStatus())
+                .totalItems(job.getTotalItems())
+                .completedItems(job.getCompletedItems())
+                .failedItems(job.getFailedItems())
+                .pendingItems(job.getTotalItems() - job.getCompletedItems() - job.getFailedItems())
+                .createdDate(job.getCreatedDate())
+                .updatedDate(job.getUpdatedDate())
+                .items(items == null ? null : items.stream().map(this::mapToBatchItemResultDTO).toList())
+                .build();
+    }
+
+    private BatchItemResultDTO mapToBatchItemResultDTO(BatchJobItem item) {
+        return BatchItemResultDTO.builder()
+                .transferId(item.getTransferId())
+                .status(BatchItemResultDTO.Status.valueOf(item.getStatus().name()))
+                .response(item.getResponse())
+                .build();
+    }
+}
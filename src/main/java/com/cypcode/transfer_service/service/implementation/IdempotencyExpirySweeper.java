@@ -0,0 +1,78 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.repository.IdempotencyStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purges expired idempotency entries in bounded batches so the store stays proportional to live traffic.
+ * Each pass publishes {@code idempotency.sweeper.purged} and {@code idempotency.sweeper.pass} metrics.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cypcode.service.idempotency.sweeper.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyExpirySweeper {
+
+    private final IdempotencyStore idempotencyStore;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final Counter purgedCounter;
+    private final Timer passTimer;
+
+    public IdempotencyExpirySweeper(IdempotencyStore idempotencyStore,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${cypcode.service.idempotency.sweeper.batch-size:500}") int batchSize,
+                                    @Value("${cypcode.service.idempotency.sweeper.batch-pause-ms:50}") long batchPauseMs) {
+        this.idempotencyStore = idempotencyStore;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+        this.purgedCounter = Counter.builder("idempotency.sweeper.purged")
+                .description("Expired idempotency entries deleted")
+                .register(meterRegistry);
+        this.passTimer = Timer.builder("idempotency.sweeper.pass")
+                .description("Duration of an idempotency expiry sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${cypcode.service.idempotency.sweeper.fixed-delay-ms:60000}",
+            fixedDelayString = "${cypcode.service.idempotency.sweeper.fixed-delay-ms:60000}")
+    public void sweep() {
+        purgeExpired();
+    }
+
+    public int purgeExpired() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        int purged = 0;
+        int batch;
+        do {
+            batch = idempotencyStore.purgeExpired(now, batchSize);
+            purged += batch;
+        } while (batch == batchSize && pause());
+
+        long elapsedNanos = System.nanoTime() - start;
+        purgedCounter.increment(purged);
+        passTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("Idempotency sweep purged {} expired rows in {} ms", purged, elapsedNanos / 1_000_000);
+        return purged;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.service.TransferIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hi/lo generator backed by the {@code transfer_id_seq} database sequence. Each sequence value reserves a block of
+ * {@code blockSize} ids that are then handed out from memory, so the database is hit once per block. The block size
+ * must be the same on every replica and must never shrink, otherwise blocks overlap.
+ */
+@Component
+@ConditionalOnProperty(name = "cypcode.service.transfer.id-generator.type", havingValue = "sequence")
+public class SequenceTransferIdGenerator implements TransferIdGenerator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int blockSize;
+
+    private long next;
+    private long limit;
+
+    public SequenceTransferIdGenerator(JdbcTemplate jdbcTemplate,
+                                       @Value("${cypcode.service.transfer.id-generator.block-size:1000}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public synchronized long nextId() {
+        if (next >= limit) {
+            Long hi = jdbcTemplate.queryForObject("SELECT nextval('transfer_id_seq')", Long.class);
+            next = hi * blockSize;
+            limit = next + blockSize;
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,95 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.service.TransferIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style generator: 41 bits of milliseconds since {@link #EPOCH}, 10 bits of node id and a 12 bit
+ * per-millisecond sequence. Ids are issued with a single CAS and no coordination between nodes, so every replica
+ * needs its own node id. A new instance never issues ids in the millisecond it was created in, which keeps ids
+ * unique across restarts of the same node.
+ * <p>
+ * The node id must be set explicitly. Deriving it from the host name is only allowed with {@code derive-node-id},
+ * which the local profile sets: a hash can give two replicas the same node id, and so the same transfer ids.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cypcode.service.transfer.id-generator.type", havingValue = "snowflake", matchIfMissing = true)
+public class SnowflakeTransferIdGenerator implements TransferIdGenerator {
+
+    public static final long EPOCH = 1735689600000L; // 2025-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last issued id
+    private final AtomicLong state;
+
+    public SnowflakeTransferIdGenerator(long nodeId) {
+        this(nodeId, false);
+    }
+
+    @Autowired
+    public SnowflakeTransferIdGenerator(@Value("${cypcode.service.transfer.id-generator.node-id:-1}") long nodeId,
+                                        @Value("${cypcode.service.transfer.id-generator.derive-node-id:false}") boolean deriveNodeId) {
+        if (nodeId < 0 && !deriveNodeId) {
+            throw new IllegalStateException(String.format(
+                    "Set cypcode.service.transfer.id-generator.node-id (TRANSFER_NODE_ID) to a value from 0 to %d unique to this replica",
+                    MAX_NODE_ID));
+        }
+        this.nodeId = nodeId < 0 ? deriveNodeId() : nodeId;
+        if (this.nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException(String.format("Node id must be between 0 and %d", MAX_NODE_ID));
+        }
+        // marks the current millisecond as exhausted so the first id comes from the next one
+        this.state = new AtomicLong(((System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS) | SEQUENCE_MASK);
+        log.info("Snowflake transfer id generator using node id {}", this.nodeId);
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long lastTimestamp = last >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis() - EPOCH;
+            long next;
+            if (now > lastTimestamp) {
+                next = now << SEQUENCE_BITS;
+            } else if ((last & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                // same millisecond, or the clock stepped back: keep counting on the last timestamp
+                next = last + 1;
+            } else {
+                // sequence exhausted for this millisecond, wait for the clock to move on
+                Thread.onSpinWait();
+                continue;
+            }
+            if (state.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    private static long deriveNodeId() {
+        try {
+            return (InetAddress.getLocalHost().getHostName().hashCode() & 0x7fffffff) % (MAX_NODE_ID + 1);
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Cannot derive a node id, set cypcode.service.transfer.id-generator.node-id", e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.common.exception.AccountNotFoundException;
+import com.cypcode.transfer_service.common.exception.IdempotencyException;
+import com.cypcode.transfer_service.common.exception.InsufficienetFundsException;
+import com.cypcode.transfer_service.common.exception.LedgerOverloadedException;
+import com.cypcode.transfer_service.common.exception.LedgerUnavailableException;
+import com.cypcode.transfer_service.common.exception.TransferRejectedException;
+import com.cypcode.transfer_service.entity.dto.BatchItemResultDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters for the transfer hot path. Every meter is registered up front with a fixed, small set of tag values, so
+ * recording is a lookup-free call on a held reference. Percentiles and histograms are configured through
+ * {@code management.metrics.distribution.*} for the {@code transfer} prefix.
+ */
+@Component
+public class TransferMetrics {
+
+    public enum Outcome {
+        CREATED,
+        UNRECONCILED,
+        REPLAYED,
+        PENDING,
+        INSUFFICIENT_FUNDS,
+        ACCOUNT_NOT_FOUND,
+        REJECTED,
+        IN_PROGRESS,
+        SHED,
+        FALLBACK,
+        FAILED
+    }
+
+    private final Timer requestTimer;
+    private final Timer lookupTimer;
+    private final Timer saveTimer;
+    private final Timer ledgerTimer;
+    private final Timer bulkLedgerTimer;
+    private final Map<Outcome, Counter> outcomeCounters = new EnumMap<>(Outcome.class);
+    private final Map<BatchItemResultDTO.Status, Counter> batchItemCounters = new EnumMap<>(BatchItemResultDTO.Status.class);
+    private final AtomicInteger batchInFlight = new AtomicInteger();
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        this.requestTimer = Timer.builder("transfer.request")
+                .description("Total time to handle a single idempotent transfer request")
+                .register(meterRegistry);
+        this.lookupTimer = Timer.builder("transfer.idempotency.lookup")
+                .description("Idempotency key lookup, cache then database")
+                .register(meterRegistry);
+        this.saveTimer = Timer.builder("transfer.idempotency.save")
+                .description("Storing the idempotency record of a completed transfer")
+                .register(meterRegistry);
+        this.ledgerTimer = Timer.builder("transfer.ledger.call")
+                .description("Ledger transfer call")
+                .tag("mode", "single")
+                .register(meterRegistry);
+        this.bulkLedgerTimer = Timer.builder("transfer.ledger.call")
+                .description("Ledger transfer call")
+                .tag("mode", "bulk")
+                .register(meterRegistry);
+        for (Outcome outcome : Outcome.values()) {
+            outcomeCounters.put(outcome, Counter.builder("transfer.outcome")
+                    .description("Single transfer requests by outcome")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        for (BatchItemResultDTO.Status status : BatchItemResultDTO.Status.values()) {
+            batchItemCounters.put(status, Counter.builder("transfer.batch.items")
+                    .description("Batch transfer items by result")
+                    .tag("status", status.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        Gauge.builder("transfer.batch.in.flight", batchInFlight, AtomicInteger::get)
+                .description("Batch transfer items currently at the ledger")
+                .register(meterRegistry);
+    }
+
+    public void recordRequest(long nanos) {
+        requestTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLookup(long nanos) {
+        lookupTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSave(long nanos) {
+        saveTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLedgerCall(long nanos) {
+        ledgerTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBulkLedgerCall(long nanos) {
+        bulkLedgerTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordOutcome(Outcome outcome) {
+        outcomeCounters.get(outcome).increment();
+    }
+
+    public void recordFailure(RuntimeException e) {
+        recordOutcome(outcomeOf(e));
+    }
+
+    public void recordBatchItem(BatchItemResultDTO.Status status) {
+        batchItemCounters.get(status).increment();
+    }
+
+    public void batchItemsStarted(int items) {
+        batchInFlight.addAndGet(items);
+    }
+
+    public void batchItemsFinished(int items) {
+        batchInFlight.addAndGet(-items);
+    }
+
+    private Outcome outcomeOf(RuntimeException e) {
+        if (e instanceof InsufficienetFundsException) {
+            return Outcome.INSUFFICIENT_FUNDS;
+        } else if (e instanceof AccountNotFoundException) {
+            return Outcome.ACCOUNT_NOT_FOUND;
+        } else if (e instanceof TransferRejectedException) {
+            return Outcome.REJECTED;
+        } else if (e instanceof IdempotencyException) {
+            return Outcome.IN_PROGRESS;
+        } else if (e instanceof LedgerOverloadedException) {
+            return Outcome.SHED;
+        } else if (e instanceof LedgerUnavailableException) {
+            return Outcome.FALLBACK;
+        }
+        return Outcome.FAILED;
+    }
+}
@@ -0,0 +1,306 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.configuration.LedgerFeignClient;
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import com.cypcode.transfer_service.entity.TransferOutbox;
+import com.cypcode.transfer_service.entity.dto.LedgerTransferResultDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.repository.ITransferOutboxRepository;
+import com.cypcode.transfer_service.repository.IdempotencyCache;
+import com.cypcode.transfer_service.repository.IdempotencyStore;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Transactional outbox for single transfers the ledger could not take. A transfer that fails with the ledger down or
+ * the circuit open is stored in {@code transfer_outbox} in the same transaction that moves its idempotency row from
+ * RESERVED to PENDING, and the caller is acknowledged with a PENDING response.
+ * <p>
+ * Every {@code poll-interval-ms} the relay claims at most {@code burst-size} due rows under a lease and sends them to
+ * the ledger's bulk endpoint, or item by item when the ledger does not support it, so a recovering ledger sees paced
+ * bursts rather than the whole backlog at once. A ledger answer is final: a 2xx completes the idempotency row and a 4xx
+ * rejection other than 429 marks it REJECTED, in one transaction with deleting the outbox row. A REJECTED key is never
+ * cached or replayed as a transfer; retries of it are refused with the ledger's answer. Anything else reschedules the
+ * row with exponential backoff and jitter. The ledger must treat a repeated transferId as the same transfer, since a relay
+ * that stops after the ledger applied a burst but before it committed the outcome sends that burst again.
+ * <p>
+ * With the JDBC idempotency store both changes share one database transaction. With a store outside the database the
+ * idempotency change is made inside the outbox transaction, just before it commits, so a crash between the two can
+ * leave a key PENDING without an outbox row until the key expires, or resend a completed transfer.
+ */
+@Slf4j
+@Component
+public class TransferOutboxRelay {
+
+    private static final Set<Integer> BULK_UNSUPPORTED_STATUSES = Set.of(
+            HttpStatus.NOT_FOUND.value(), HttpStatus.METHOD_NOT_ALLOWED.value(), HttpStatus.NOT_IMPLEMENTED.value());
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ITransferOutboxRepository outboxRepository;
+    private final IdempotencyStore idempotencyStore;
+    private final IdempotencyCache idempotencyCache;
+    private final LedgerFeignClient ledgerFeignClient;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int burstSize;
+    private final long leaseMs;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final boolean bulkEnabled;
+    private final long bulkReprobeIntervalMs;
+    private final Counter completedCounter;
+    private final Counter rejectedCounter;
+    private final Counter retriedCounter;
+
+    // set when the ledger rejects the bulk endpoint; bursts use per-item calls until then
+    private volatile long bulkUnsupportedUntil;
+
+    public TransferOutboxRelay(ITransferOutboxRepository outboxRepository,
+                               IdempotencyStore idempotencyStore,
+                               IdempotencyCache idempotencyCache,
+                               LedgerFeignClient ledgerFeignClient,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${cypcode.service.transfer.outbox.enabled:true}") boolean enabled,
+                               @Value("${cypcode.service.transfer.outbox.burst-size:100}") int burstSize,
+                               @Value("${cypcode.service.transfer.outbox.lease-ms:30000}") long leaseMs,
+                               @Value("${cypcode.service.transfer.outbox.initial-backoff-ms:1000}") long initialBackoffMs,
+                               @Value("${cypcode.service.transfer.outbox.max-backoff-ms:60000}") long maxBackoffMs,
+                               @Value("${cypcode.service.ledger.bulk.enabled:true}") boolean bulkEnabled,
+                               @Value("${cypcode.service.ledger.bulk.reprobe-interval-ms:600000}") long bulkReprobeIntervalMs) {
+        this.outboxRepository = outboxRepository;
+        this.idempotencyStore = idempotencyStore;
+        this.idempotencyCache = idempotencyCache;
+        this.ledgerFeignClient = ledgerFeignClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.burstSize = burstSize;
+        this.leaseMs = leaseMs;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.bulkEnabled = bulkEnabled;
+        this.bulkReprobeIntervalMs = bulkReprobeIntervalMs;
+        this.completedCounter = Counter.builder("transfer.outbox.relayed")
+                .description("Outbox transfers by relay attempt result")
+                .tag("result", "completed")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("transfer.outbox.relayed")
+                .description("Outbox transfers by relay attempt result")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("transfer.outbox.relayed")
+                .description("Outbox transfers by relay attempt result")
+                .tag("result", "retried")
+                .register(meterRegistry);
+        Gauge.builder("transfer.outbox.pending", outboxRepository, ITransferOutboxRepository::count)
+                .description("Transfers waiting in the outbox for the ledger")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records the transfer in the outbox and marks its reserved idempotency entry PENDING, both or neither. Returns
+     * false, writing nothing, when the reservation is no longer held by this transfer.
+     */
+    public boolean enqueue(TransferDTO transferDTO, Idempotency pending) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean queued = transactionTemplate.execute(status -> {
+            outboxRepository.enqueue(transferDTO.getTransferId(), pending.getId(), transferDTO.getFromAccountId(),
+                    transferDTO.getToAccountId(), transferDTO.getAmount(), now.plus(Duration.ofMillis(initialBackoffMs)), now);
+            if (!idempotencyStore.transition(pending.getId(), pending.getTransferId(), IdempotencyStatus.RESERVED,
+                    IdempotencyStatus.PENDING, pending.getResponse(), pending.getExpiryDate())) {
+                status.setRollbackOnly();
+                return false;
+            }
+            return true;
+        });
+        if (queued) {
+            log.warn("Transfer {} for Idempotency-Key {} queued in the outbox", transferDTO.getTransferId(), pending.getId());
+        }
+        return queued;
+    }
+
+    @Scheduled(fixedDelayString = "${cypcode.service.transfer.outbox.poll-interval-ms:500}")
+    public void poll() {
+        if (enabled) {
+            relayDue();
+        }
+    }
+
+    /**
+     * Sends one burst of due transfers to the ledger and returns the number whose outcome is now final.
+     */
+    public int relayDue() {
+        List<TransferOutbox> burst = claimBurst();
+        if (burst.isEmpty()) {
+            return 0;
+        }
+        Map<Long, LedgerTransferResultDTO> outcomes = send(burst);
+        int completed = 0;
+        for (TransferOutbox entry : burst) {
+            LedgerTransferResultDTO outcome = outcomes.get(entry.getTransferId());
+            try {
+                if (outcome != null && isFinal(outcome.getStatus())) {
+                    complete(entry, outcome);
+                    completed++;
+                } else {
+                    reschedule(entry, outcome == null ? "No result returned by ledger" : outcome.getResponse());
+                }
+            } catch (RuntimeException e) {
+                // the row keeps its lease and is picked up again once it lapses
+                log.error("Outbox transfer {} could not be updated: {}", entry.getTransferId(), e.getMessage());
+            }
+        }
+        log.info("Outbox relay sent {} transfers, {} completed", burst.size(), completed);
+        return completed;
+    }
+
+    private List<TransferOutbox> claimBurst() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseExpiry = now.plus(Duration.ofMillis(leaseMs));
+        List<Long> claimed = new ArrayList<>();
+        for (Long transferId : outboxRepository.findDueIds(now, PageRequest.of(0, burstSize))) {
+            if (outboxRepository.claim(transferId, leaseExpiry, now) == 1) {
+                claimed.add(transferId);
+            }
+        }
+        return claimed.isEmpty() ? List.of() : outboxRepository.findAllById(claimed);
+    }
+
+    /**
+     * Returns the ledger's answer per transferId; transfers it gave no answer for are missing from the map.
+     */
+    private Map<Long, LedgerTransferResultDTO> send(List<TransferOutbox> burst) {
+        List<TransferDTO> payload = burst.stream().map(this::mapToTransferDTO).toList();
+        Map<Long, LedgerTransferResultDTO> outcomes = new HashMap<>();
+        if (bulkEnabled && System.currentTimeMillis() >= bulkUnsupportedUntil) {
+            try {
+                ResponseEntity<List<LedgerTransferResultDTO>> response = ledgerFeignClient.createTransfers(payload);
+                if (response.getBody() != null) {
+                    response.getBody().forEach(outcome -> outcomes.put(outcome.getTransferId(), outcome));
+                }
+                return outcomes;
+            } catch (FeignException e) {
+                if (!BULK_UNSUPPORTED_STATUSES.contains(e.status())) {
+                    return unanswered(payload, e);
+                }
+                log.warn("Ledger bulk transfer endpoint unavailable ({}), relaying outbox per item", e.status());
+                bulkUnsupportedUntil = System.currentTimeMillis() + bulkReprobeIntervalMs;
+            } catch (RuntimeException e) {
+                return unanswered(payload, e);
+            }
+        }
+        for (int index = 0; index < payload.size(); index++) {
+            TransferDTO transfer = payload.get(index);
+            try {
+                ResponseEntity<String> response = ledgerFeignClient.createTransfer(transfer);
+                outcomes.put(transfer.getTransferId(), mapToResult(transfer, response.getStatusCode().value(), response.getBody()));
+            } catch (RuntimeException e) {
+                // the ledger is still down or the circuit is open; the rest of the burst waits for its next attempt
+                outcomes.putAll(unanswered(payload.subList(index, payload.size()), e));
+                break;
+            }
+        }
+        return outcomes;
+    }
+
+    private Map<Long, LedgerTransferResultDTO> unanswered(List<TransferDTO> transfers, RuntimeException e) {
+        log.warn("Outbox relay of {} transfers failed: {}", transfers.size(), e.getMessage());
+        Map<Long, LedgerTransferResultDTO> outcomes = new HashMap<>();
+        for (TransferDTO transfer : transfers) {
+            outcomes.put(transfer.getTransferId(), mapToResult(transfer, HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage()));
+        }
+        return outcomes;
+    }
+
+    private boolean isFinal(int status) {
+        HttpStatus httpStatus = HttpStatus.resolve(status);
+        return httpStatus != null && (httpStatus.is2xxSuccessful()
+                || (httpStatus.is4xxClientError() && httpStatus != HttpStatus.TOO_MANY_REQUESTS));
+    }
+
+    private void complete(TransferOutbox entry, LedgerTransferResultDTO outcome) {
+        boolean applied = HttpStatusCode.valueOf(outcome.getStatus()).is2xxSuccessful();
+        Idempotency completed = Idempotency.builder()
+                .id(entry.getIdempotencyKey())
+                .transferId(entry.getTransferId())
+                .response(outcome.getResponse())
+                .expiryDate(LocalDateTime.now().plusHours(TransferServiceImpl.IDEMPOTENCY_KEY_EXPIRATION_HOURS))
+                .status(applied ? IdempotencyStatus.COMPLETED : IdempotencyStatus.REJECTED)
+                .build();
+        boolean updated = transactionTemplate.execute(status -> {
+            outboxRepository.delete(entry.getTransferId());
+            return idempotencyStore.transition(completed.getId(), completed.getTransferId(), IdempotencyStatus.PENDING,
+                    completed.getStatus(), completed.getResponse(), completed.getExpiryDate());
+        });
+        if (!updated) {
+            log.warn("Outbox transfer {} {} but Idempotency-Key {} is no longer pending", entry.getTransferId(),
+                    applied ? "completed" : "was rejected", entry.getIdempotencyKey());
+        } else if (applied) {
+            idempotencyCache.put(completed);
+        } else {
+            log.warn("Outbox transfer {} for Idempotency-Key {} rejected by the ledger ({}): {}", entry.getTransferId(),
+                    entry.getIdempotencyKey(), outcome.getStatus(), outcome.getResponse());
+        }
+        (applied ? completedCounter : rejectedCounter).increment();
+    }
+
+    /**
+     * Backs off exponentially from initial-backoff-ms up to max-backoff-ms, waiting a random time between half and all
+     * of that, and keeps the PENDING idempotency entry alive past the next attempt so the key cannot be reused meanwhile.
+     */
+    private void reschedule(TransferOutbox entry, String error) {
+        long backoffMs = Math.min(initialBackoffMs << Math.min(entry.getAttempts(), 30), maxBackoffMs);
+        long delayMs = backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1);
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(Duration.ofMillis(delayMs));
+        String lastError = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxRepository.reschedule(entry.getTransferId(), nextAttemptAt, lastError);
+            idempotencyStore.extend(entry.getIdempotencyKey(), entry.getTransferId(), IdempotencyStatus.PENDING,
+                    nextAttemptAt.plusHours(TransferServiceImpl.IDEMPOTENCY_KEY_EXPIRATION_HOURS));
+        });
+        retriedCounter.increment();
+    }
+
+    private TransferDTO mapToTransferDTO(TransferOutbox entry) {
+        return TransferDTO.builder()
+                .transferId(entry.getTransferId())
+                .fromAccountId(entry.getFromAccountId())
+                .toAccountId(entry.getToAccountId())
+                .amount(entry.getAmount())
+                .build();
+    }
+
+    private LedgerTransferResultDTO mapToResult(TransferDTO transfer, int status, String response) {
+        return LedgerTransferResultDTO.builder()
+                .transferId(transfer.getTransferId())
+                .status(status)
+                .response(response)
+                .build();
+    }
+}
@@ -3,48 +3,137 @@ package com.cypcode.transfer_service.service.implementation;
 import com.cypcode.transfer_service.common.exception.AccountNotFoundException;
 import com.cypcode.transfer_service.common.exception.IdempotencyException;
 import com.cypcode.transfer_service.common.exception.InsufficienetFundsException;
+import com.cypcode.transfer_service.common.exception.LedgerUnavailableException;
+import com.cypcode.transfer_service.common.exception.TransferRejectedException;
 import com.cypcode.transfer_service.configuration.LedgerFeignClient;
 import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import com.cypcode.transfer_service.entity.dto.BatchItemResultDTO;
 import com.cypcode.transfer_service.entity.dto.IdempotencyDTO;
+import com.cypcode.transfer_service.entity.dto.LedgerTransferResultDTO;
 import com.cypcode.transfer_service.entity.dto.TransferDTO;
-import com.cypcode.transfer_service.repository.IIdempotencyRepository;
+import com.cypcode.transfer_service.entity.dto.TransferStatusDTO;
+import com.cypcode.transfer_service.entity.dto.TransferStatusQueryDTO;
+import com.cypcode.transfer_service.repository.IdempotencyCache;
+import com.cypcode.transfer_service.repository.IdempotencyStore;
+import com.cypcode.transfer_service.repository.IdempotencyWriter;
+import com.cypcode.transfer_service.service.TransferIdGenerator;
 import com.cypcode.transfer_service.service.TransferService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import feign.FeignException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
-@EnableAsync
 @Service
 public class TransferServiceImpl implements TransferService {
 
     public static final int IDEMPOTENCY_KEY_EXPIRATION_HOURS = 2;
 
+    private static final Set<Integer> BULK_UNSUPPORTED_STATUSES = Set.of(
+            HttpStatus.NOT_FOUND.value(), HttpStatus.METHOD_NOT_ALLOWED.value(), HttpStatus.NOT_IMPLEMENTED.value());
+
     @Autowired
     private LedgerFeignClient ledgerFeignClient;
 
     @Autowired
-    private IIdempotencyRepository idempotencyRepository;
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IdempotencyCache idempotencyCache;
+
+    @Autowired
+    private IdempotencyWriter idempotencyWriter;
+
+    @Autowired
+    @Qualifier("ledgerExecutor")
+    private Executor ledgerExecutor;
+
+    @Value("${cypcode.service.transfer.batch.max-concurrency:20}")
+    private int batchMaxConcurrency;
+
+    @Value("${cypcode.service.ledger.bulk.enabled:true}")
+    private boolean bulkEnabled;
+
+    @Value("${cypcode.service.ledger.bulk.max-size:500}")
+    private int bulkMaxSize;
+
+    @Value("${cypcode.service.ledger.bulk.reprobe-interval-ms:600000}")
+    private long bulkReprobeIntervalMs;
+
+    // set when the ledger rejects the bulk endpoint; batches use per-item calls until then
+    private volatile long bulkUnsupportedUntil;
+
+    @Value("${cypcode.service.transfer.status.chunk-size:1000}")
+    private int statusChunkSize;
+
+    @Value("${cypcode.service.idempotency.reservation-timeout-ms:30000}")
+    private long reservationTimeoutMs;
+
+    @Value("${cypcode.service.idempotency.reservation-poll-interval-ms:50}")
+    private long reservationPollIntervalMs;
+
+    @Autowired
+    private TransferIdGenerator transferIdGenerator;
 
-    private AtomicInteger atomicTransferId = new AtomicInteger(1000000);
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransferMetrics transferMetrics;
+
+    @Autowired
+    private TransferOutboxRelay transferOutboxRelay;
+
+    @Autowired
+    private AccountLaneDispatcher accountLaneDispatcher;
+
+    private final ConcurrentMap<String, CompletableFuture<IdempotencyDTO>> inFlightTransfers = new ConcurrentHashMap<>();
 
     @Override
     public IdempotencyDTO getTransferById(long id) {
         try {
-            Idempotency response = idempotencyRepository.findIdempotencyByTransferId(id);
+            Idempotency response = findIdempotencyByTransferId(id);
            if (response != null) {
                return mapToIdempotencyDTO(response);
            }
@@ -57,7 +146,7 @@ public class TransferServiceImpl implements TransferService {
     @Override
     public String createTransfer(TransferDTO transferDTO) {
         try {
-            ResponseEntity<String> response = ledgerFeignClient.createTransfer(transferDTO);
+            ResponseEntity<String> response = callLedger(transferDTO);
             if (response.getStatusCode().is2xxSuccessful()) {
                 return response.getBody();
             }else if(response.getStatusCode().value() == HttpStatus.PRECONDITION_FAILED.value()){
@@ -76,71 +165,704 @@ public class TransferServiceImpl implements TransferService {
 
     @Override
     public IdempotencyDTO createTransferWithIndempotency(TransferDTO transferDTO, String id) {
-        Idempotency idempotency = idempotencyRepository.findIdempotencyById(id);
-        if (idempotency != null && idempotency.getExpiryDate().isAfter(LocalDateTime.now())) {
-            return mapToIdempotencyDTO(idempotency);
-        }else{
-            long transferId = atomicTransferId.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            Idempotency idempotency = findIdempotencyById(id);
+            transferMetrics.recordLookup(System.nanoTime() - start);
+            if (isReplayable(idempotency)) {
+                transferMetrics.recordOutcome(TransferMetrics.Outcome.REPLAYED);
+                return mapToIdempotencyDTO(idempotency);
+            }
+            if (isPending(idempotency)) {
+                transferMetrics.recordOutcome(TransferMetrics.Outcome.PENDING);
+                return mapToIdempotencyDTO(idempotency);
+            }
+            if (isRejected(idempotency)) {
+                throw rejectedTransfer(idempotency);
+            }
+            return createOrAwaitTransfer(transferDTO, id, transferIdGenerator.nextId());
+        } catch (RuntimeException e) {
+            transferMetrics.recordFailure(e);
+            throw e;
+        } finally {
+            transferMetrics.recordRequest(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public byte[] findReplayResponse(String id) {
+        long start = System.nanoTime();
+        byte[] response = idempotencyCache.getReplayResponse(id);
+        if (response == null) {
+            // only keys already in memory take this path, anything else goes through createTransferWithIndempotency
+            Idempotency idempotency = idempotencyCache.getById(id);
+            if (!isReplayable(idempotency)) {
+                return null;
+            }
+            try {
+                response = objectMapper.writeValueAsBytes(mapToIdempotencyDTO(idempotency));
+            } catch (JsonProcessingException e) {
+                log.warn("Replay response for {} could not be serialized: {}", id, e.getMessage());
+                return null;
+            }
+            idempotencyCache.putReplayResponse(idempotency, response);
+        }
+        transferMetrics.recordOutcome(TransferMetrics.Outcome.REPLAYED);
+        transferMetrics.recordRequest(System.nanoTime() - start);
+        return response;
+    }
+
+    private IdempotencyDTO createOrAwaitTransfer(TransferDTO transferDTO, String id, long transferId) {
+        // concurrent duplicates on this instance wait for the first request instead of calling the ledger again
+        CompletableFuture<IdempotencyDTO> transfer = new CompletableFuture<>();
+        CompletableFuture<IdempotencyDTO> inFlight = inFlightTransfers.putIfAbsent(id, transfer);
+        if (inFlight != null) {
+            IdempotencyDTO response = awaitInFlightTransfer(inFlight);
+            transferMetrics.recordOutcome(TransferMetrics.Outcome.REPLAYED);
+            return response;
+        }
+        try {
+            IdempotencyDTO response = executeTransferWithReservation(transferDTO, id, transferId);
+            transfer.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            transfer.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightTransfers.remove(id, transfer);
+        }
+    }
+
+    @Override
+    public List<BatchItemResultDTO> batchTransfer(List<TransferDTO> transferDTOList) throws ExecutionException, InterruptedException {
+        int size = transferDTOList.size();
+        BatchItemResultDTO[] results = new BatchItemResultDTO[size];
+        for (TransferDTO item : transferDTOList) {
+            // the transferId is the item's idempotency key, so items sent without one each need their own
+            if (item.getTransferId() <= 0) {
+                item.setTransferId(transferIdGenerator.nextId());
+            }
+        }
+
+        Map<String, Idempotency> idempotencies = findIdempotenciesByIds(transferDTOList.stream()
+                .map(item -> String.valueOf(item.getTransferId()))
+                .toList());
+        List<Integer> pending = new ArrayList<>();
+        Set<Long> transferIds = new HashSet<>(size * 2);
+        for (int index = 0; index < size; index++) {
+            TransferDTO item = transferDTOList.get(index);
+            Idempotency idempotency = idempotencies.get(String.valueOf(item.getTransferId()));
+            // both copies would share one idempotency key and one bulk outcome, so only the first is sent
+            if (!transferIds.add(item.getTransferId())) {
+                results[index] = mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.FAILED, "Duplicate transferId in batch");
+            } else if (isReplayable(idempotency)) {
+                results[index] = mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.REPLAYED, idempotency.getResponse());
+            } else {
+                pending.add(index);
+            }
+        }
+
+        List<Integer> unsent = bulkEnabled ? bulkTransfer(transferDTOList, pending, results) : pending;
+        if (!unsent.isEmpty()) {
+            fanOutTransfer(transferDTOList, unsent, results);
+        }
+        for (BatchItemResultDTO result : results) {
+            transferMetrics.recordBatchItem(result.getStatus());
+        }
+        log.info("Batch transfer completed: {} items", size);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Reads newline-delimited transfers one record at a time and dispatches each to the ledger as soon as it is parsed,
+     * writing every item result to the output as an NDJSON line when it completes. At most batchMaxConcurrency items
+     * are in flight; once they are, parsing stops and the upload is held back by TCP flow control, so memory grows only
+     * by the transferIds seen, used to fail repeats as batchTransfer does. Each item takes the same reservation and
+     * in-flight path as a single transfer keyed by its transferId. Results are written in completion order.
+     */
+    @Override
+    public void streamTransfer(InputStream input, OutputStream output) throws IOException, InterruptedException {
+        int permits = Math.max(batchMaxConcurrency, 1);
+        Semaphore inFlight = new Semaphore(permits);
+        ObjectWriter resultWriter = objectMapper.writerFor(BatchItemResultDTO.class);
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+        Set<Long> transferIds = new HashSet<>();
+        int received = 0;
+        try (MappingIterator<TransferDTO> records = objectMapper.readerFor(TransferDTO.class).readValues(input)) {
+            while (writeFailure.get() == null && records.hasNextValue()) {
+                TransferDTO item = records.nextValue();
+                received++;
+                String violations = validate(item);
+                if (violations != null) {
+                    writeStreamResult(output, resultWriter, mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.FAILED, violations));
+                    continue;
+                }
+                if (item.getTransferId() <= 0) {
+                    item.setTransferId(transferIdGenerator.nextId());
+                }
+                if (!transferIds.add(item.getTransferId())) {
+                    BatchItemResultDTO duplicate = mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.FAILED, "Duplicate transferId in batch");
+                    transferMetrics.recordBatchItem(duplicate.getStatus());
+                    writeStreamResult(output, resultWriter, duplicate);
+                    continue;
+                }
+                inFlight.acquire();
+                CompletableFuture.supplyAsync(() -> processStreamItem(item), ledgerExecutor)
+                        .exceptionally(e -> mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.FAILED, e.getMessage()))
+                        .thenAccept(result -> {
+                            transferMetrics.recordBatchItem(result.getStatus());
+                            writeStreamResult(output, resultWriter, result);
+                        })
+                        .whenComplete((result, e) -> {
+                            if (e != null && e.getCause() instanceof UncheckedIOException cause) {
+                                writeFailure.compareAndSet(null, cause.getCause());
+                            }
+                            inFlight.release();
+                        });
+            }
+        } catch (JsonProcessingException e) {
+            // a malformed record leaves the parser at an unknown position, so reading stops after reporting it
+            writeStreamResult(output, resultWriter, BatchItemResultDTO.builder()
+                    .status(BatchItemResultDTO.Status.FAILED)
+                    .response(String.format("Malformed record after item %d: %s", received, e.getOriginalMessage()))
+                    .build());
+        } finally {
+            inFlight.acquire(permits);
+        }
+        if (writeFailure.get() != null) {
+            throw writeFailure.get();
+        }
+        log.info("Streamed batch transfer completed: {} items", received);
+    }
+
+    /**
+     * Writes one NDJSON status line per requested transferId, then per idempotency key, in request order. Ids are
+     * resolved statusChunkSize at a time: from the idempotency cache where held, the rest with one store lookup per
+     * chunk, and each chunk is flushed before the next is read. Ids with no live entry are reported as NOT_FOUND.
+     */
+    @Override
+    public void streamTransferStatuses(TransferStatusQueryDTO query, OutputStream output) throws IOException {
+        ObjectWriter statusWriter = objectMapper.writerFor(TransferStatusDTO.class);
+        List<Long> transferIds = query.getTransferIds() == null ? List.of() : query.getTransferIds();
+        List<String> idempotencyKeys = query.getIdempotencyKeys() == null ? List.of() : query.getIdempotencyKeys();
+        writeStatuses(transferIds, idempotencyCache::getByTransferId, idempotencyStore::findAllByTransferId, Idempotency::getTransferId,
+                transferId -> TransferStatusDTO.builder().transferId(transferId), output, statusWriter);
+        writeStatuses(idempotencyKeys, idempotencyCache::getById, idempotencyStore::findAllById, Idempotency::getId,
+                id -> TransferStatusDTO.builder().id(id), output, statusWriter);
+        log.info("Transfer statuses streamed: {} transferIds, {} idempotency keys", transferIds.size(), idempotencyKeys.size());
+    }
+
+    /**
+     * Writes a status line for every live entry with a transferId in the inclusive range, in transferId order. Transfer
+     * ids only grow, so a range covers the transfers created in a window of time. The range is read from the store a
+     * page of statusChunkSize at a time, each page starting after the last transferId of the one before; the cache is
+     * not ordered and is bypassed.
+     */
+    @Override
+    public void streamTransferStatusRange(long fromTransferId, long toTransferId, OutputStream output) throws IOException {
+        ObjectWriter statusWriter = objectMapper.writerFor(TransferStatusDTO.class);
+        int pageSize = Math.max(statusChunkSize, 1);
+        long next = fromTransferId;
+        int written = 0;
+        while (true) {
+            List<Idempotency> page = idempotencyStore.findByTransferIdRange(next, toTransferId, pageSize);
+            for (Idempotency idempotency : page) {
+                writeStatus(output, statusWriter, mapToTransferStatusDTO(idempotency));
+            }
+            output.flush();
+            written += page.size();
+            if (page.size() < pageSize || page.get(page.size() - 1).getTransferId() >= toTransferId) {
+                break;
+            }
+            next = page.get(page.size() - 1).getTransferId() + 1;
+        }
+        log.info("Transfer statuses streamed: {} transfers from {} to {}", written, fromTransferId, toTransferId);
+    }
+
+    private <K> void writeStatuses(List<K> keys, Function<K, Idempotency> cached, Function<List<K>, List<Idempotency>> stored,
+                                   Function<Idempotency, K> keyOf, Function<K, TransferStatusDTO.TransferStatusDTOBuilder> notFound,
+                                   OutputStream output, ObjectWriter statusWriter) throws IOException {
+        int chunkSize = Math.max(statusChunkSize, 1);
+        for (int from = 0; from < keys.size(); from += chunkSize) {
+            List<K> chunk = keys.subList(from, Math.min(from + chunkSize, keys.size()));
+            Map<K, Idempotency> found = new HashMap<>();
+            List<K> misses = new ArrayList<>();
+            for (K key : chunk) {
+                Idempotency idempotency = cached.apply(key);
+                if (idempotency != null) {
+                    found.put(key, idempotency);
+                } else {
+                    misses.add(key);
+                }
+            }
+            // a reconciliation run reads each id once, so what it loads is not put in the cache
+            if (!misses.isEmpty()) {
+                stored.apply(misses).forEach(idempotency -> found.put(keyOf.apply(idempotency), idempotency));
+            }
+            for (K key : chunk) {
+                Idempotency idempotency = found.get(key);
+                writeStatus(output, statusWriter, idempotency != null
+                        ? mapToTransferStatusDTO(idempotency)
+                        : notFound.apply(key).status(TransferStatusDTO.Status.NOT_FOUND).build());
+            }
+            output.flush();
+        }
+    }
+
+    private void writeStatus(OutputStream output, ObjectWriter statusWriter, TransferStatusDTO status) throws IOException {
+        output.write(statusWriter.writeValueAsBytes(status));
+        output.write('\n');
+    }
+
+    private BatchItemResultDTO processStreamItem(TransferDTO item) {
+        String id = String.valueOf(item.getTransferId());
+        try {
+            Idempotency idempotency = findIdempotencyById(id);
+            if (isReplayable(idempotency)) {
+                return mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.REPLAYED, idempotency.getResponse());
+            }
+            if (isPending(idempotency)) {
+                return mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.PENDING, idempotency.getResponse());
+            }
+            if (isRejected(idempotency)) {
+                throw rejectedTransfer(idempotency);
+            }
+            IdempotencyDTO response;
+            transferMetrics.batchItemsStarted(1);
+            try {
+                response = createOrAwaitTransfer(item, id, item.getTransferId());
+            } finally {
+                transferMetrics.batchItemsFinished(1);
+            }
+            BatchItemResultDTO.Status status = response.isPending() ? BatchItemResultDTO.Status.PENDING : BatchItemResultDTO.Status.PROCESSED;
+            return mapToBatchItemResultDTO(item, status, response.getResponse());
+        } catch (RuntimeException e) {
+            log.error("Streamed transfer item {} failed: {}", item.getTransferId(), e.getMessage());
+            return mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private String validate(TransferDTO item) {
+        Set<ConstraintViolation<TransferDTO>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+    }
+
+    private void writeStreamResult(OutputStream output, ObjectWriter resultWriter, BatchItemResultDTO result) {
+        try {
+            byte[] line = resultWriter.writeValueAsBytes(result);
+            synchronized (output) {
+                output.write(line);
+                output.write('\n');
+                output.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sends the pending items to the ledger's bulk endpoint in chunks of bulkMaxSize and returns the indexes that still
+     * need per-item calls because the ledger does not support bulk transfers.
+     */
+    private List<Integer> bulkTransfer(List<TransferDTO> transferDTOList, List<Integer> pending, BatchItemResultDTO[] results) {
+        List<Integer> unsent = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += bulkMaxSize) {
+            List<Integer> chunk = pending.subList(from, Math.min(from + bulkMaxSize, pending.size()));
+            if (System.currentTimeMillis() < bulkUnsupportedUntil) {
+                unsent.addAll(chunk);
+                continue;
+            }
+            List<TransferDTO> payload = chunk.stream().map(transferDTOList::get).toList();
+            transferMetrics.batchItemsStarted(payload.size());
+            long start = System.nanoTime();
+            try {
+                ResponseEntity<List<LedgerTransferResultDTO>> response;
+                try {
+                    response = ledgerFeignClient.createTransfers(payload);
+                } finally {
+                    transferMetrics.recordBulkLedgerCall(System.nanoTime() - start);
+                    transferMetrics.batchItemsFinished(payload.size());
+                }
+                Map<Long, LedgerTransferResultDTO> outcomes = new HashMap<>();
+                if (response.getBody() != null) {
+                    response.getBody().forEach(outcome -> outcomes.put(outcome.getTransferId(), outcome));
+                }
+                List<Idempotency> completed = new ArrayList<>();
+                for (int index : chunk) {
+                    results[index] = mapBulkOutcome(transferDTOList.get(index), outcomes.get(transferDTOList.get(index).getTransferId()), completed);
+                }
+                storeAppliedEntries(completed);
+            } catch (FeignException e) {
+                if (BULK_UNSUPPORTED_STATUSES.contains(e.status())) {
+                    log.warn("Ledger bulk transfer endpoint unavailable ({}), falling back to per-item calls", e.status());
+                    bulkUnsupportedUntil = System.currentTimeMillis() + bulkReprobeIntervalMs;
+                    unsent.addAll(chunk);
+                } else {
+                    failChunk(transferDTOList, chunk, results, e);
+                }
+            } catch (Exception e) {
+                failChunk(transferDTOList, chunk, results, e);
+            }
+        }
+        return unsent;
+    }
+
+    private BatchItemResultDTO mapBulkOutcome(TransferDTO item, LedgerTransferResultDTO outcome, List<Idempotency> completed) {
+        if (outcome == null) {
+            return mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.FAILED, "No result returned by ledger");
+        }
+        if (HttpStatusCode.valueOf(outcome.getStatus()).is2xxSuccessful()) {
+            completed.add(buildIdempotencyEntry(String.valueOf(item.getTransferId()), outcome.getResponse(), item.getTransferId()));
+            return mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.PROCESSED, outcome.getResponse());
+        }
+        return mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.FAILED, outcome.getResponse());
+    }
+
+    /**
+     * Stores the idempotency records of items the ledger has applied. The items stay PROCESSED if this fails: the
+     * transfers took place, and reporting them as failed would invite a resend.
+     */
+    private void storeAppliedEntries(List<Idempotency> applied) {
+        try {
+            addIdempotencyEntries(applied);
+        } catch (RuntimeException e) {
+            logUnstoredEntries(applied.stream().map(Idempotency::getTransferId).toList(), e);
+        }
+    }
+
+    private void logUnstoredEntries(List<Long> transferIds, RuntimeException e) {
+        log.error("Transfers {} were applied by the ledger but their idempotency records were not stored: {}", transferIds, e.getMessage());
+    }
+
+    private void failChunk(List<TransferDTO> transferDTOList, List<Integer> chunk, BatchItemResultDTO[] results, Exception e) {
+        // the ledger may have applied part of the chunk, so the items are reported as failed rather than resent
+        log.error("Bulk transfer of {} items failed: {}", chunk.size(), e.getMessage());
+        for (int index : chunk) {
+            results[index] = mapToBatchItemResultDTO(transferDTOList.get(index), BatchItemResultDTO.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private void fanOutTransfer(List<TransferDTO> transferDTOList, List<Integer> indexes, BatchItemResultDTO[] results)
+            throws ExecutionException, InterruptedException {
+        int size = indexes.size();
+        AtomicInteger cursor = new AtomicInteger();
+
+        // each worker drains the shared cursor, so at most batchMaxConcurrency ledger calls are in flight per batch
+        int workers = Math.min(Math.max(batchMaxConcurrency, 1), size);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                int position;
+                while ((position = cursor.getAndIncrement()) < size) {
+                    int index = indexes.get(position);
+                    results[index] = processItem(transferDTOList.get(index));
+                }
+            }, ledgerExecutor));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+    }
+
+    private BatchItemResultDTO processItem(TransferDTO item) {
+        try {
+            ResponseEntity<String> result;
+            transferMetrics.batchItemsStarted(1);
+            try {
+                result = callLedger(item);
+            } finally {
+                transferMetrics.batchItemsFinished(1);
+            }
+            if (result.getStatusCode().is2xxSuccessful()) {
+                try {
+                    addIdempotencyEntry(String.valueOf(item.getTransferId()), result.getBody(), item.getTransferId());
+                } catch (RuntimeException e) {
+                    logUnstoredEntries(List.of(item.getTransferId()), e);
+                }
+                return mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.PROCESSED, result.getBody());
+            }
+            return mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.FAILED, result.getBody());
+        } catch (Exception e) {
+            log.error("Batch transfer item {} failed: {}", item.getTransferId(), e.getMessage());
+            return mapToBatchItemResultDTO(item, BatchItemResultDTO.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private IdempotencyDTO executeTransferWithReservation(TransferDTO transferDTO, String id, long transferId) {
+        if (!reserveIdempotencyKey(id, transferId)) {
+            return awaitReservedTransfer(id);
+        }
+        String response;
+        try {
             transferDTO.setTransferId(transferId);
-            String response = createTransfer(transferDTO);
+            response = createTransfer(transferDTO);
+        } catch (LedgerUnavailableException e) {
+            IdempotencyDTO pending = deferTransfer(transferDTO, id);
+            if (pending != null) {
+                return pending;
+            }
+            idempotencyStore.release(id, transferId);
+            throw e;
+        } catch (RuntimeException e) {
+            idempotencyStore.release(id, transferId);
+            throw e;
+        }
+        // the ledger has applied the transfer: from here on the key is never released, or a retry would send it again
+        try {
             Idempotency idempotencyEntry = addIdempotencyEntry(id, response, transferId);
+            transferMetrics.recordOutcome(TransferMetrics.Outcome.CREATED);
             return mapToIdempotencyDTO(idempotencyEntry);
+        } catch (RuntimeException e) {
+            return markUnreconciled(id, transferId, response, e);
         }
+    }
 
+    /**
+     * Keeps the key of a transfer the ledger applied but whose idempotency record could not be stored, moving its
+     * reservation to UNRECONCILED for the idempotency lifetime. Retries of the key are refused instead of resent until
+     * the entry is reconciled. The ledger's answer is still returned, since the transfer took place.
+     */
+    private IdempotencyDTO markUnreconciled(String id, long transferId, String response, RuntimeException cause) {
+        Idempotency unreconciled = buildIdempotencyEntry(id, response, transferId);
+        unreconciled.setStatus(IdempotencyStatus.UNRECONCILED);
+        try {
+            // false when the record was stored after all and only what followed it failed
+            if (idempotencyStore.transition(id, transferId, IdempotencyStatus.RESERVED, IdempotencyStatus.UNRECONCILED,
+                    response, unreconciled.getExpiryDate())) {
+                log.error("Transfer {} was applied by the ledger but its idempotency record was not stored, key {} is UNRECONCILED: {}",
+                        transferId, id, cause.getMessage());
+            }
+        } catch (RuntimeException e) {
+            log.error("Transfer {} was applied by the ledger but key {} could not be stored or marked UNRECONCILED, "
+                    + "it stays reserved until its lease expires: {}", transferId, id, e.getMessage());
+        }
+        transferMetrics.recordOutcome(TransferMetrics.Outcome.UNRECONCILED);
+        return mapToIdempotencyDTO(unreconciled);
     }
 
-    @Override
-    public void batchTransfer(List<TransferDTO> transferDTOList) throws ExecutionException, InterruptedException {
-        List<CompletableFuture<String>> futures = new ArrayList<>();
-        for (TransferDTO transferDTO : transferDTOList) {
-            CompletableFuture<String> result = processItem(transferDTO);
-            futures.add(result);
+    /**
+     * Hands a transfer the ledger could not take to the outbox and acknowledges it as PENDING. Returns null when the
+     * outbox is disabled or the transfer could not be queued, in which case the ledger failure is reported instead.
+     */
+    private IdempotencyDTO deferTransfer(TransferDTO transferDTO, String id) {
+        if (!transferOutboxRelay.isEnabled()) {
+            return null;
         }
+        Idempotency pending = Idempotency.builder()
+                .id(id)
+                .transferId(transferDTO.getTransferId())
+                .expiryDate(LocalDateTime.now().plusHours(IDEMPOTENCY_KEY_EXPIRATION_HOURS))
+                .status(IdempotencyStatus.PENDING)
+                .build();
+        try {
+            if (!transferOutboxRelay.enqueue(transferDTO, pending)) {
+                return null;
+            }
+        } catch (RuntimeException e) {
+            log.error("Transfer {} could not be queued in the outbox: {}", transferDTO.getTransferId(), e.getMessage());
+            return null;
+        }
+        transferMetrics.recordOutcome(TransferMetrics.Outcome.PENDING);
+        return mapToIdempotencyDTO(pending);
+    }
 
-        CompletableFuture<Void> allOfFutures = CompletableFuture.allOf(
-                futures.toArray(new CompletableFuture[0]));
+    /**
+     * Atomically claims the key in the idempotency store so that only one caller sharing the store calls the ledger
+     * for it. The reservation is a lease: if its holder dies, the entry expires and can be taken over.
+     */
+    private boolean reserveIdempotencyKey(String id, long transferId) {
+        return idempotencyStore.reserve(id, transferId, LocalDateTime.now().plus(Duration.ofMillis(reservationTimeoutMs)));
+    }
 
-        CompletableFuture<List<String>> allResultsFuture = allOfFutures.thenApply(v ->
-                futures.stream()
-                        .map(CompletableFuture::join)
-                        .collect(Collectors.toList()));
+    private IdempotencyDTO awaitReservedTransfer(String id) {
+        long deadline = System.nanoTime() + Duration.ofMillis(reservationTimeoutMs).toNanos();
+        while (System.nanoTime() < deadline) {
+            Idempotency idempotency = idempotencyStore.findById(id);
+            if (idempotency == null) {
+                throw new IdempotencyException(String.format("Transfer with Idempotency-Key %s failed, retry the request", id));
+            }
+            if (isReplayable(idempotency)) {
+                idempotencyCache.put(idempotency);
+                transferMetrics.recordOutcome(TransferMetrics.Outcome.REPLAYED);
+                return mapToIdempotencyDTO(idempotency);
+            }
+            if (isPending(idempotency)) {
+                transferMetrics.recordOutcome(TransferMetrics.Outcome.PENDING);
+                return mapToIdempotencyDTO(idempotency);
+            }
+            if (isRejected(idempotency)) {
+                throw rejectedTransfer(idempotency);
+            }
+            if (idempotency.getStatus() == IdempotencyStatus.UNRECONCILED) {
+                throw new IdempotencyException(String.format("Transfer with Idempotency-Key %s is awaiting reconciliation", id));
+            }
+            try {
+                Thread.sleep(reservationPollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new IdempotencyException(String.format("Transfer with Idempotency-Key %s is still in progress", id));
+    }
+
+    private IdempotencyDTO awaitInFlightTransfer(CompletableFuture<IdempotencyDTO> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean isReplayable(Idempotency idempotency) {
+        return idempotency != null
+                && idempotency.getStatus() == IdempotencyStatus.COMPLETED
+                && idempotency.getExpiryDate().isAfter(LocalDateTime.now());
+    }
 
-        List<String> results = allResultsFuture.get();
-        log.info("Batch transfer results: {}", results);
+    /**
+     * Pending rows are never cached, so this always reflects the database and turns into a replay once the outbox
+     * relay has completed the transfer.
+     */
+    private boolean isPending(Idempotency idempotency) {
+        return idempotency != null
+                && idempotency.getStatus() == IdempotencyStatus.PENDING
+                && idempotency.getExpiryDate().isAfter(LocalDateTime.now());
+    }
+
+    private boolean isRejected(Idempotency idempotency) {
+        return idempotency != null
+                && idempotency.getStatus() == IdempotencyStatus.REJECTED
+                && idempotency.getExpiryDate().isAfter(LocalDateTime.now());
+    }
+
+    private TransferRejectedException rejectedTransfer(Idempotency idempotency) {
+        return new TransferRejectedException(String.format("Transfer with Idempotency-Key %s was rejected by the ledger: %s",
+                idempotency.getId(), idempotency.getResponse()));
+    }
+
+    private Idempotency findIdempotencyById(String id) {
+        Idempotency idempotency = idempotencyCache.getById(id);
+        if (idempotency == null) {
+            idempotency = idempotencyStore.findById(id);
+            if (idempotency != null) {
+                idempotencyCache.put(idempotency);
+            }
+        }
+        return idempotency;
+    }
+
+    private Map<String, Idempotency> findIdempotenciesByIds(List<String> ids) {
+        Map<String, Idempotency> idempotencies = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String id : ids) {
+            Idempotency idempotency = idempotencyCache.getById(id);
+            if (idempotency != null) {
+                idempotencies.put(id, idempotency);
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (Idempotency idempotency : idempotencyStore.findAllById(misses)) {
+                idempotencyCache.put(idempotency);
+                idempotencies.put(idempotency.getId(), idempotency);
+            }
+        }
+        return idempotencies;
     }
 
-    @Async
-    public CompletableFuture<String> processItem(TransferDTO item) {
-        Idempotency idempotency = idempotencyRepository.findIdempotencyByTransferId(item.getTransferId());
-        if (idempotency != null && idempotency.getExpiryDate().isBefore(LocalDateTime.now())) {
-            log.info("Idempotency: {}, status: {}", idempotency.getTransferId(), idempotency.getResponse());
-            return CompletableFuture.completedFuture(String.format("Processed: %s, %s", item.getTransferId(), idempotency.getResponse()));
-        }else{
-            ResponseEntity<String> result = ledgerFeignClient.createTransfer(item);
-            if(result.getStatusCode().is2xxSuccessful()){
-                addIdempotencyEntry(String.valueOf(item.getTransferId()), result.getBody(), item.getTransferId());
+    private Idempotency findIdempotencyByTransferId(long transferId) {
+        Idempotency idempotency = idempotencyCache.getByTransferId(transferId);
+        if (idempotency == null) {
+            idempotency = idempotencyStore.findByTransferId(transferId);
+            if (idempotency != null) {
+                idempotencyCache.put(idempotency);
             }
-            log.info("Transfer: {}, status: {}", item.getTransferId(), result.getBody());
-            return CompletableFuture.completedFuture(String.format("Processed: %s, %s", item.getTransferId(), result.getBody()));
+        }
+        return idempotency;
+    }
+
+    private ResponseEntity<String> callLedger(TransferDTO transferDTO) {
+        if (accountLaneDispatcher.isEnabled()) {
+            // the lane times the ledger call itself, apart from the wait in the lane
+            return accountLaneDispatcher.dispatch(transferDTO);
+        }
+        long start = System.nanoTime();
+        try {
+            return ledgerFeignClient.createTransfer(transferDTO);
+        } finally {
+            transferMetrics.recordLedgerCall(System.nanoTime() - start);
         }
     }
 
     private Idempotency addIdempotencyEntry(String id, String response, long transferId) {
-        return idempotencyRepository.save(Idempotency.builder()
+        long start = System.nanoTime();
+        Idempotency idempotency = buildIdempotencyEntry(id, response, transferId);
+        idempotencyWriter.write(idempotency);
+        idempotencyCache.put(idempotency);
+        transferMetrics.recordSave(System.nanoTime() - start);
+        return idempotency;
+    }
+
+    private void addIdempotencyEntries(List<Idempotency> idempotencies) {
+        long start = System.nanoTime();
+        idempotencyWriter.writeAll(idempotencies);
+        idempotencies.forEach(idempotencyCache::put);
+        transferMetrics.recordSave(System.nanoTime() - start);
+    }
+
+    private Idempotency buildIdempotencyEntry(String id, String response, long transferId) {
+        return Idempotency.builder()
                 .id(id)
                 .transferId(transferId)
                 .response(response)
                 .expiryDate(LocalDateTime.now().plusHours(IDEMPOTENCY_KEY_EXPIRATION_HOURS))
-                .build());
+                .status(IdempotencyStatus.COMPLETED)
+                .build();
     }
 
     private IdempotencyDTO mapToIdempotencyDTO(Idempotency idempotency) {
-        log.info("Idempotency: Key: {}, Transfer Id: {}", idempotency.getId(), idempotency.getTransferId());
+        log.debug("Idempotency: Key: {}, Transfer Id: {}", idempotency.getId(), idempotency.getTransferId());
         return IdempotencyDTO.builder()
                 .id(idempotency.getId())
+                .status(mapToTransferStatus(idempotency.getStatus()))
                 .response(idempotency.getResponse())
                 .expiryDate(idempotency.getExpiryDate())
                 .transferId(idempotency.getTransferId())
                 .build();
     }
+
+    private TransferStatusDTO mapToTransferStatusDTO(Idempotency idempotency) {
+        return TransferStatusDTO.builder()
+                .id(idempotency.getId())
+                .transferId(idempotency.getTransferId())
+                .status(mapToTransferStatus(idempotency.getStatus()))
+                .response(idempotency.getResponse())
+                .expiryDate(idempotency.getExpiryDate())
+                .build();
+    }
+
+    private TransferStatusDTO.Status mapToTransferStatus(IdempotencyStatus status) {
+        return switch (status) {
+            case COMPLETED -> TransferStatusDTO.Status.COMPLETED;
+            case PENDING -> TransferStatusDTO.Status.PENDING;
+            case RESERVED -> TransferStatusDTO.Status.IN_PROGRESS;
+            case UNRECONCILED -> TransferStatusDTO.Status.UNRECONCILED;
+            case REJECTED -> TransferStatusDTO.Status.REJECTED;
+        };
+    }
+
+    private BatchItemResultDTO mapToBatchItemResultDTO(TransferDTO item, BatchItemResultDTO.Status status, String response) {
+        return BatchItemResultDTO.builder()
+                .transferId(item.getTransferId())
+                .status(status)
+                .response(response)
+                .build();
+    }
 }
@@ -0,0 +1,57 @@
+package com.cypcode.transfer_service.benchmark;
+
+import com.cypcode.transfer_service.entity.dto.BatchItemResultDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.service.TransferService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batches of new transfers per second through the bulk ledger path and through the per-item fan-out, for several
+ * batch sizes. Every invocation uses fresh transfer ids, so nothing is replayed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchTransferBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int batchSize;
+
+    @Param({"true", "false"})
+    private boolean bulk;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private TransferService transferService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start("batch-benchmark-" + batchSize + "-" + bulk, WebApplicationType.NONE,
+                "cypcode.service.ledger.bulk.enabled=" + bulk);
+        transferService = context.getBean(TransferService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BatchItemResultDTO> batchTransfer() throws Exception {
+        List<TransferDTO> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(BenchmarkApplication.transfer(sequence.incrementAndGet()));
+        }
+        return transferService.batchTransfer(batch);
+    }
+}
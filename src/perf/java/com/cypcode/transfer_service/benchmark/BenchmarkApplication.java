@@ -0,0 +1,83 @@
+package com.cypcode.transfer_service.benchmark;
+
+import com.cypcode.transfer_service.Application;
+import com.cypcode.transfer_service.configuration.LedgerFeignClient;
+import com.cypcode.transfer_service.entity.dto.LedgerTransferResultDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Boots the full service against its own in-memory H2 database with an in-process ledger that answers immediately,
+ * so the benchmarks measure this service and nothing on the network.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String name, WebApplicationType webApplicationType, String... properties) {
+        // has to be a system property, devtools decides on a restart before the environment exists
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(Application.class)
+                .web(webApplicationType)
+                .initializers(context -> {
+                    ((GenericApplicationContext) context).registerBean("stubLedgerFeignClient", LedgerFeignClient.class,
+                            StubLedgerFeignClient::new, definition -> definition.setPrimary(true));
+                    // @FeignClient registers the real client as primary too; once scanned it is demoted so the stub wins
+                    context.addBeanFactoryPostProcessor(beanFactory ->
+                            beanFactory.getBeanDefinition(LedgerFeignClient.class.getName()).setPrimary(false));
+                })
+                // as command line arguments, so they override application.yml; builder properties are only defaults
+                .run(Stream.concat(Stream.of(
+                                "spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;MODE=PostgreSQL",
+                                "spring.main.banner-mode=off",
+                                "server.port=0",
+                                "logging.level.root=WARN",
+                                "logging.level.com.cypcode=WARN",
+                                "cypcode.service.idempotency.sweeper.enabled=false",
+                                "cypcode.service.ledger.limiter.max-limit=1000"), Stream.of(properties))
+                        .map(property -> "--" + property)
+                        .toArray(String[]::new));
+    }
+
+    static TransferDTO transfer(long transferId) {
+        return TransferDTO.builder()
+                .transferId(transferId)
+                .fromAccountId(12345)
+                .toAccountId(56789)
+                .amount(BigDecimal.valueOf(200))
+                .build();
+    }
+
+    static class StubLedgerFeignClient implements LedgerFeignClient {
+
+        @Override
+        public ResponseEntity<String> createTransfer(TransferDTO payload) {
+            return ResponseEntity.ok("SUCCESS");
+        }
+
+        @Override
+        public ResponseEntity<List<LedgerTransferResultDTO>> createTransfers(List<TransferDTO> payload) {
+            return ResponseEntity.ok(payload.stream()
+                    .map(item -> LedgerTransferResultDTO.builder()
+                            .transferId(item.getTransferId())
+                            .status(200)
+                            .response("SUCCESS")
+                            .build())
+                    .toList());
+        }
+
+        @Override
+        public TransferDTO getTransfer(long id) {
+            return transfer(id);
+        }
+    }
+}
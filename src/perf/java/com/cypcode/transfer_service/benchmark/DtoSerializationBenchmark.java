@@ -0,0 +1,71 @@
+package com.cypcode.transfer_service.benchmark;
+
+import com.cypcode.transfer_service.entity.dto.IdempotencyDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON round trips of the request and response DTOs with an ObjectMapper configured the way Spring MVC builds it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoSerializationBenchmark {
+
+    private ObjectWriter transferWriter;
+    private ObjectReader transferReader;
+    private ObjectWriter idempotencyWriter;
+    private ObjectReader idempotencyReader;
+    private TransferDTO transfer;
+    private IdempotencyDTO idempotency;
+    private byte[] transferJson;
+    private byte[] idempotencyJson;
+
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        transferWriter = objectMapper.writerFor(TransferDTO.class);
+        transferReader = objectMapper.readerFor(TransferDTO.class);
+        idempotencyWriter = objectMapper.writerFor(IdempotencyDTO.class);
+        idempotencyReader = objectMapper.readerFor(IdempotencyDTO.class);
+        transfer = BenchmarkApplication.transfer(237547729921470464L);
+        idempotency = IdempotencyDTO.builder()
+                .id("18ad19fa-c93a-484c-a964-e46a0fb7f3c6")
+                .transferId(237547729921470464L)
+                .response("SUCCESS")
+                .expiryDate(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .build();
+        transferJson = transferWriter.writeValueAsBytes(transfer);
+        idempotencyJson = idempotencyWriter.writeValueAsBytes(idempotency);
+    }
+
+    @Benchmark
+    public byte[] serializeTransfer() throws Exception {
+        return transferWriter.writeValueAsBytes(transfer);
+    }
+
+    @Benchmark
+    public TransferDTO deserializeTransfer() throws Exception {
+        return transferReader.readValue(transferJson);
+    }
+
+    @Benchmark
+    public byte[] serializeIdempotency() throws Exception {
+        return idempotencyWriter.writeValueAsBytes(idempotency);
+    }
+
+    @Benchmark
+    public IdempotencyDTO deserializeIdempotency() throws Exception {
+        return idempotencyReader.readValue(idempotencyJson);
+    }
+}
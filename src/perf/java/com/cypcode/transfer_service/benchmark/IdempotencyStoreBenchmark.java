@@ -0,0 +1,91 @@
+package com.cypcode.transfer_service.benchmark;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import com.cypcode.transfer_service.repository.IdempotencyStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Operations per millisecond of each idempotency store from 16 concurrent callers: a new key's reserve followed by its
+ * completed save, and a lookup of a previously completed key. Mapped store writes are forced to disk as in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class IdempotencyStoreBenchmark {
+
+    private static final int PRELOADED_KEYS = 10_000;
+
+    @Param({"jdbc", "mapped"})
+    private String store;
+
+    private final AtomicLong sequence = new AtomicLong(PRELOADED_KEYS);
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private IdempotencyStore idempotencyStore;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("idempotency-store-benchmark");
+        context = BenchmarkApplication.start("store-benchmark-" + store, WebApplicationType.NONE,
+                "cypcode.service.idempotency.store.type=" + store,
+                "cypcode.service.idempotency.store.mapped.path=" + directory.resolve("idempotency.store"));
+        idempotencyStore = context.getBean(IdempotencyStore.class);
+        for (long transferId = 0; transferId < PRELOADED_KEYS; transferId++) {
+            idempotencyStore.saveAll(List.of(completed(transferId)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public boolean reserveAndComplete() {
+        long transferId = sequence.incrementAndGet();
+        boolean reserved = idempotencyStore.reserve(key(transferId), transferId, LocalDateTime.now().plusSeconds(30));
+        idempotencyStore.saveAll(List.of(completed(transferId)));
+        return reserved;
+    }
+
+    @Benchmark
+    public Idempotency findById() {
+        return idempotencyStore.findById(key(ThreadLocalRandom.current().nextLong(PRELOADED_KEYS)));
+    }
+
+    private static String key(long transferId) {
+        return "key-" + transferId;
+    }
+
+    private static Idempotency completed(long transferId) {
+        return Idempotency.builder()
+                .id(key(transferId))
+                .transferId(transferId)
+                .response("SUCCESS")
+                .expiryDate(LocalDateTime.now().plusHours(2))
+                .status(IdempotencyStatus.COMPLETED)
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.cypcode.transfer_service.benchmark;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import com.cypcode.transfer_service.repository.IdempotencyStore;
+import com.cypcode.transfer_service.repository.IdempotencyWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rows/sec (throughput mode) and save latency percentiles (sample mode) of group-committed idempotency writes from
+ * 64 concurrent callers, for batch sizes 1, 16 and 128, against the default JDBC idempotency store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class IdempotencyWriterBenchmark {
+
+    @Param({"1", "16", "128"})
+    private int batchSize;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private IdempotencyWriter writer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start("writer-benchmark-" + batchSize, WebApplicationType.NONE);
+        writer = new IdempotencyWriter(context.getBean(IdempotencyStore.class), new SimpleMeterRegistry(),
+                IdempotencyWriter.Mode.GROUP_COMMIT, batchSize, 5, 10_000);
+        writer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        writer.stop();
+        context.close();
+    }
+
+    @Benchmark
+    public void save() {
+        long transferId = sequence.incrementAndGet();
+        writer.write(Idempotency.builder()
+                .id("key-" + batchSize + "-" + transferId)
+                .transferId(transferId)
+                .response("SUCCESS")
+                .expiryDate(LocalDateTime.now().plusHours(2))
+                .status(IdempotencyStatus.COMPLETED)
+                .build());
+    }
+}
@@ -0,0 +1,64 @@
+package com.cypcode.transfer_service.benchmark;
+
+import com.cypcode.transfer_service.service.implementation.SequenceTransferIdGenerator;
+import com.cypcode.transfer_service.service.implementation.SnowflakeTransferIdGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IDs/sec of the transfer id generators, uncontended and with 8 threads sharing one generator.
+ * Snowflake is capped by design at 4096 ids per millisecond per node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferIdGeneratorBenchmark {
+
+    private SnowflakeTransferIdGenerator snowflake;
+    private SequenceTransferIdGenerator sequence;
+    private SingleConnectionDataSource dataSource;
+
+    @Setup
+    public void setup() {
+        snowflake = new SnowflakeTransferIdGenerator(1);
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:benchmark;MODE=PostgreSQL", "sa", "", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE SEQUENCE transfer_id_seq START WITH 1 INCREMENT BY 1");
+        sequence = new SequenceTransferIdGenerator(jdbcTemplate, 1000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long snowflake() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long snowflakeContended() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long sequence() {
+        return sequence.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long sequenceContended() {
+        return sequence.nextId();
+    }
+}
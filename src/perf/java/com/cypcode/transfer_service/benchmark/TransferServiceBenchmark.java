@@ -0,0 +1,100 @@
+package com.cypcode.transfer_service.benchmark;
+
+import com.cypcode.transfer_service.controller.IdempotentReplayFilter;
+import com.cypcode.transfer_service.entity.dto.IdempotencyDTO;
+import com.cypcode.transfer_service.service.TransferService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Single transfers through the service and through the controller (MockMvc, including JSON binding and validation):
+ * the idempotent replay of a known key, and a new transfer that reserves the key, calls the stub ledger and stores
+ * the result in H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferServiceBenchmark {
+    private static final int REPLAY_KEYS = 1024;
+    // built up front so the replay benchmarks do not count key formatting as allocation
+    private static final String[] REPLAY_KEY_NAMES = IntStream.range(0, REPLAY_KEYS)
+            .mapToObj(i -> "replay-" + i)
+            .toArray(String[]::new);
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private TransferService transferService;
+    private MockMvc mockMvc;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = BenchmarkApplication.start("transfer-benchmark", WebApplicationType.SERVLET);
+        transferService = context.getBean(TransferService.class);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBean(IdempotentReplayFilter.class))
+                .build();
+        payload = context.getBean(ObjectMapper.class).writeValueAsBytes(BenchmarkApplication.transfer(0));
+        for (int i = 0; i < REPLAY_KEYS; i++) {
+            transferService.createTransferWithIndempotency(BenchmarkApplication.transfer(0), replayKey(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public IdempotencyDTO replay() {
+        return transferService.createTransferWithIndempotency(BenchmarkApplication.transfer(0), replayKey(sequence.incrementAndGet()));
+    }
+
+    @Benchmark
+    public byte[] replayResponse() {
+        return transferService.findReplayResponse(replayKey(sequence.incrementAndGet()));
+    }
+
+    @Benchmark
+    public IdempotencyDTO newTransfer() {
+        return transferService.createTransferWithIndempotency(BenchmarkApplication.transfer(0), "new-" + sequence.incrementAndGet());
+    }
+
+    @Benchmark
+    public MvcResult controllerReplay() throws Exception {
+        return mockMvc.perform(post("/transfers")
+                        .header("Idempotency-Key", replayKey(sequence.incrementAndGet()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult controllerNewTransfer() throws Exception {
+        return mockMvc.perform(post("/transfers")
+                        .header("Idempotency-Key", "controller-" + sequence.incrementAndGet())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andReturn();
+    }
+
+    private static String replayKey(long index) {
+        return REPLAY_KEY_NAMES[(int) (index % REPLAY_KEYS)];
+    }
+}
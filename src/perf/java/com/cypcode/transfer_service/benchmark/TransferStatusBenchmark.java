@@ -0,0 +1,106 @@
+package com.cypcode.transfer_service.benchmark;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import com.cypcode.transfer_service.entity.dto.TransferStatusQueryDTO;
+import com.cypcode.transfer_service.repository.IdempotencyStore;
+import com.cypcode.transfer_service.service.TransferService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Reconciliations per second of 1000 completed transfers through the controller (MockMvc): one GET /transfers/{id}
+ * per transfer, one POST /transfers/status with all the ids, and one GET /transfers/status for their transferId range.
+ * With a cache size of 0 every lookup goes to H2, as for transfers older than the cache holds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferStatusBenchmark {
+    private static final int TRANSFERS = 1000;
+    private static final long FIRST_TRANSFER_ID = 1_000_000;
+
+    @Param({"0", "100000"})
+    private int cacheSize;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private byte[] query;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = BenchmarkApplication.start("status-benchmark-" + cacheSize, WebApplicationType.SERVLET,
+                "cypcode.service.idempotency.cache.maximum-size=" + cacheSize);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        List<Idempotency> idempotencies = new ArrayList<>(TRANSFERS);
+        for (int i = 0; i < TRANSFERS; i++) {
+            idempotencies.add(Idempotency.builder()
+                    .id("status-" + i)
+                    .transferId(FIRST_TRANSFER_ID + i)
+                    .response("SUCCESS")
+                    .expiryDate(LocalDateTime.now().plusHours(2))
+                    .status(IdempotencyStatus.COMPLETED)
+                    .build());
+        }
+        context.getBean(IdempotencyStore.class).saveAll(idempotencies);
+        TransferService transferService = context.getBean(TransferService.class);
+        // loads the cache, when there is one
+        for (int i = 0; i < TRANSFERS; i++) {
+            transferService.getTransferById(FIRST_TRANSFER_ID + i);
+        }
+        query = context.getBean(ObjectMapper.class).writeValueAsBytes(TransferStatusQueryDTO.builder()
+                .transferIds(LongStream.range(FIRST_TRANSFER_ID, FIRST_TRANSFER_ID + TRANSFERS).boxed().toList())
+                .build());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void perIdRequests(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < TRANSFERS; i++) {
+            blackhole.consume(mockMvc.perform(get("/transfers/{id}", FIRST_TRANSFER_ID + i)).andReturn());
+        }
+    }
+
+    @Benchmark
+    public MvcResult bulkRequest() throws Exception {
+        MvcResult result = mockMvc.perform(post("/transfers/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(query))
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult rangeRequest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/transfers/status")
+                        .param("fromTransferId", String.valueOf(FIRST_TRANSFER_ID))
+                        .param("toTransferId", String.valueOf(FIRST_TRANSFER_ID + TRANSFERS - 1)))
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result)).andReturn();
+    }
+}
@@ -0,0 +1,110 @@
+package com.cypcode.transfer_service.loadtest;
+
+import com.cypcode.transfer_service.entity.dto.LedgerTransferResultDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process ledger on an ephemeral port serving the single and bulk transfer endpoints. Every call takes a fixed base
+ * latency plus an exponentially distributed tail, and fails (HTTP 500, or a 500 item status on the bulk endpoint) with
+ * the configured probability.
+ */
+final class FakeLedger implements AutoCloseable {
+
+    private static final TypeReference<List<TransferDTO>> TRANSFERS = new TypeReference<>() {
+    };
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long latencyMicros;
+    private final long tailMeanMicros;
+    private final double errorRate;
+
+    FakeLedger(long latencyMs, long tailMeanMs, double errorRate) throws IOException {
+        this.latencyMicros = latencyMs * 1000;
+        this.tailMeanMicros = tailMeanMs * 1000;
+        this.errorRate = errorRate;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/ledger/transfer/bulk", this::bulkTransfer);
+        server.createContext("/ledger/transfer", this::transfer);
+        server.start();
+    }
+
+    String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void transfer(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            pause();
+            boolean failed = failed();
+            respond(exchange, failed ? 500 : 200, "text/plain", (failed ? "LEDGER ERROR" : "SUCCESS").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void bulkTransfer(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            List<TransferDTO> items = objectMapper.readValue(exchange.getRequestBody(), TRANSFERS);
+            pause();
+            List<LedgerTransferResultDTO> results = items.stream()
+                    .map(item -> {
+                        boolean failed = failed();
+                        return LedgerTransferResultDTO.builder()
+                                .transferId(item.getTransferId())
+                                .status(failed ? 500 : 200)
+                                .response(failed ? "LEDGER ERROR" : "SUCCESS")
+                                .build();
+                    })
+                    .toList();
+            respond(exchange, 200, "application/json", objectMapper.writeValueAsBytes(results));
+        }
+    }
+
+    private void pause() {
+        long micros = latencyMicros;
+        if (tailMeanMicros > 0) {
+            micros += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * tailMeanMicros);
+        }
+        if (micros > 0) {
+            try {
+                Thread.sleep(micros / 1000, (int) (micros % 1000) * 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean failed() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.cypcode.transfer_service.loadtest;
+
+import com.cypcode.transfer_service.Application;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Open-model load test: boots the service on a random port against a {@link FakeLedger}, then offers each configured
+ * arrival rate for a fixed step, sending requests at Poisson-distributed intended start times whether or not earlier
+ * ones have answered. Latency is measured from the intended start, so queueing in the service shows up instead of
+ * slowing the generator down. The report lists achieved throughput and latency percentiles per step and picks the knee:
+ * the highest offered rate the service still keeps up with before p99 breaks away from the low-load p99.
+ *
+ * <p>Run: mvn -Pperf test-compile exec:exec@load-test -Dload.rates=25,50,100,200,400
+ */
+public class LoadTestHarness {
+
+    private static final String JSON = "application/json";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final int[] mix;
+    private final int batchSize;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // transfer ids returned by POST /transfers, read back by GET /transfers/{id}
+    private final AtomicLongArray createdIds = new AtomicLongArray(4096);
+    private final AtomicLong createdCount = new AtomicLong();
+    // batch items are keyed by their transfer id, so each one needs a fresh id to be a new transfer
+    private final AtomicLong batchTransferIds = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    LoadTestHarness(String baseUrl, int[] mix, int batchSize, ExecutorService executor) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.batchSize = batchSize;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] rates = ints(System.getProperty("load.rates", "25,50,100,200,400"));
+        int stepSeconds = Integer.getInteger("load.step-seconds", 20);
+        int warmupSeconds = Integer.getInteger("load.warmup-seconds", 10);
+        int[] mix = ints(System.getProperty("load.mix", "70,25,5"));
+        int batchSize = Integer.getInteger("load.batch-size", 50);
+        double kneeFactor = Double.parseDouble(System.getProperty("load.knee-p99-factor", "3"));
+        long ledgerLatencyMs = Long.getLong("load.ledger-latency-ms", 20);
+        long ledgerTailMs = Long.getLong("load.ledger-latency-tail-ms", 10);
+        double ledgerErrorRate = Double.parseDouble(System.getProperty("load.ledger-error-rate", "0"));
+        Path reportDir = Path.of(System.getProperty("load.report-dir", "target/load-test"));
+
+        try (FakeLedger ledger = new FakeLedger(ledgerLatencyMs, ledgerTailMs, ledgerErrorRate);
+             ConfigurableApplicationContext context = start(ledger.getBaseUrl());
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            LoadTestHarness harness = new LoadTestHarness("http://localhost:" + port + "/transfers", mix, batchSize, executor);
+
+            System.out.printf("Ledger: %d ms + exp(%d ms), error rate %.3f; mix POST/GET/batch %s, batch size %d%n",
+                    ledgerLatencyMs, ledgerTailMs, ledgerErrorRate, Arrays.toString(mix), batchSize);
+            if (warmupSeconds > 0) {
+                harness.run(rates[0], warmupSeconds);
+            }
+            List<StepResult> results = new ArrayList<>();
+            for (int rate : rates) {
+                StepResult result = harness.run(rate, stepSeconds);
+                results.add(result);
+                System.out.println(result.summary());
+            }
+            report(results, kneeFactor, reportDir);
+        }
+    }
+
+    static ConfigurableApplicationContext start(String ledgerUrl) {
+        // devtools reads this before any application property; a restart would drop the properties below
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(Application.class)
+                .run("--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;MODE=PostgreSQL",
+                        "--spring.main.banner-mode=off",
+                        "--server.port=0",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.cypcode=WARN",
+                        "--cypcode.service.ledger.base-url=" + ledgerUrl);
+    }
+
+    StepResult run(int rate, int seconds) throws InterruptedException {
+        StepResult step = new StepResult(rate, seconds);
+        long meanGapNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long intendedStart = start;
+        while (intendedStart < end) {
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(step, intendedStart);
+            intendedStart += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos);
+        }
+        step.awaitCompletion(start, REQUEST_TIMEOUT.plusSeconds(5));
+        return step;
+    }
+
+    private void send(StepResult step, long intendedStart) {
+        int pick = ThreadLocalRandom.current().nextInt(mix[0] + mix[1] + mix[2]);
+        Endpoint endpoint = pick < mix[0] ? Endpoint.POST : pick < mix[0] + mix[1] ? Endpoint.GET : Endpoint.BATCH;
+        long created = createdCount.get();
+        if (endpoint == Endpoint.GET && created == 0) {
+            endpoint = Endpoint.POST;
+        }
+
+        HttpRequest request = switch (endpoint) {
+            case POST -> HttpRequest.newBuilder(URI.create(baseUrl))
+                    .header("Content-Type", JSON)
+                    .header("Idempotency-Key", UUID.randomUUID().toString())
+                    .POST(HttpRequest.BodyPublishers.ofString(transfer(0)))
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+            case GET -> {
+                long id = createdIds.get((int) (ThreadLocalRandom.current().nextLong(Math.min(created, createdIds.length()))));
+                yield HttpRequest.newBuilder(URI.create(baseUrl + "/" + id)).GET().timeout(REQUEST_TIMEOUT).build();
+            }
+            case BATCH -> HttpRequest.newBuilder(URI.create(baseUrl + "/batch"))
+                    .header("Content-Type", JSON)
+                    .POST(HttpRequest.BodyPublishers.ofString(IntStream.range(0, batchSize)
+                            .mapToObj(i -> transfer(batchTransferIds.incrementAndGet()))
+                            .collect(Collectors.joining(",", "[", "]"))))
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+        };
+
+        Endpoint sent = endpoint;
+        step.sent();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    step.record(sent, System.nanoTime() - intendedStart, error == null ? response.statusCode() : -1);
+                    if (sent == Endpoint.POST && error == null && response.statusCode() == 201) {
+                        remember(response.body());
+                    }
+                });
+    }
+
+    private String transfer(long transferId) {
+        // single transfers get their id from the service
+        return String.format("{\"transferId\":%d,\"fromAccountId\":%d,\"toAccountId\":%d,\"amount\":%d}", transferId,
+                ThreadLocalRandom.current().nextInt(1, 10_000), ThreadLocalRandom.current().nextInt(1, 10_000),
+                ThreadLocalRandom.current().nextInt(1, 1_000));
+    }
+
+    private void remember(String body) {
+        try {
+            JsonNode transferId = objectMapper.readTree(body).get("transferId");
+            if (transferId != null) {
+                createdIds.set((int) (createdCount.getAndIncrement() % createdIds.length()), transferId.asLong());
+            }
+        } catch (IOException e) {
+            // not a transfer body; nothing to read back
+        }
+    }
+
+    static void report(List<StepResult> results, double kneeFactor, Path reportDir) throws IOException {
+        System.out.println();
+        System.out.printf("%8s %10s %10s %8s %8s %8s %9s %9s %9s %9s%n",
+                "offered", "achieved", "goodput", "429", "503", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (StepResult result : results) {
+            Histogram all = result.histogram(null);
+            System.out.printf("%8d %10.1f %10.1f %8d %8d %8d %9.1f %9.1f %9.1f %9.1f%n",
+                    result.offered, result.achieved(), result.goodput(), result.status(429), result.status(503),
+                    result.errors(), millis(all, 50), millis(all, 90), millis(all, 99), all.getMaxValue() / 1000.0);
+        }
+
+        StepResult knee = knee(results, kneeFactor);
+        if (knee == null) {
+            System.out.println("Knee: not reached below the lowest offered rate; start from a lower rate");
+        } else if (knee == results.get(results.size() - 1)) {
+            System.out.printf("Knee: beyond %d req/s (p99 %.1f ms); offer higher rates to find it%n",
+                    knee.offered, millis(knee.histogram(null), 99));
+        } else {
+            System.out.printf("Knee: ~%d req/s offered (%.1f req/s achieved, p99 %.1f ms); the next step loses throughput or p99 exceeds %.1fx the low-load p99%n",
+                    knee.offered, knee.achieved(), millis(knee.histogram(null), 99), kneeFactor);
+        }
+
+        Files.createDirectories(reportDir);
+        for (StepResult result : results) {
+            for (Endpoint endpoint : Endpoint.values()) {
+                Histogram histogram = result.histogram(endpoint);
+                if (histogram.getTotalCount() == 0) {
+                    continue;
+                }
+                Path file = reportDir.resolve(String.format("%d-%s.hgrm", result.offered, endpoint.name().toLowerCase()));
+                try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                    // values are recorded in microseconds; the distribution is written in milliseconds
+                    histogram.outputPercentileDistribution(out, 1000.0);
+                }
+            }
+        }
+        System.out.println("Latency distributions (HdrHistogram .hgrm, ms): " + reportDir.toAbsolutePath());
+    }
+
+    /**
+     * Last step that still delivers at least 90% of its offered rate as successful responses with a p99 within
+     * {@code factor} times the first step's p99.
+     */
+    static StepResult knee(List<StepResult> results, double factor) {
+        double baseline = Math.max(1, results.get(0).histogram(null).getValueAtPercentile(99));
+        StepResult knee = null;
+        for (StepResult result : results) {
+            boolean keepsUp = result.goodput() >= 0.9 * result.offered;
+            boolean flat = result.histogram(null).getValueAtPercentile(99) <= factor * baseline;
+            if (!keepsUp || !flat) {
+                break;
+            }
+            knee = result;
+        }
+        return knee;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static int[] ints(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    enum Endpoint {POST, GET, BATCH}
+
+    static class StepResult {
+
+        private final int offered;
+        private final int seconds;
+        private final Histogram[] histograms = new Histogram[Endpoint.values().length];
+        // index 0 counts timeouts and connection failures, the rest HTTP statuses
+        private final AtomicInteger[] statuses = new AtomicInteger[600];
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private volatile long lastCompletion;
+        private long elapsedNanos;
+
+        StepResult(int offered, int seconds) {
+            this.offered = offered;
+            this.seconds = seconds;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new ConcurrentHistogram(3);
+            }
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = new AtomicInteger();
+            }
+        }
+
+        void sent() {
+            outstanding.incrementAndGet();
+        }
+
+        void record(Endpoint endpoint, long latencyNanos, int status) {
+            histograms[endpoint.ordinal()].recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            statuses[status < 0 || status >= statuses.length ? 0 : status].incrementAndGet();
+            completed.incrementAndGet();
+            lastCompletion = System.nanoTime();
+            outstanding.decrementAndGet();
+        }
+
+        void awaitCompletion(long start, Duration timeout) throws InterruptedException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            // throughput is counted until the last answer of the step, including the drain after sending stopped
+            elapsedNanos = Math.max(lastCompletion, start + TimeUnit.SECONDS.toNanos(seconds)) - start;
+        }
+
+        Histogram histogram(Endpoint endpoint) {
+            if (endpoint != null) {
+                return histograms[endpoint.ordinal()];
+            }
+            Histogram all = new Histogram(3);
+            for (Histogram histogram : histograms) {
+                all.add(histogram);
+            }
+            return all;
+        }
+
+        int status(int status) {
+            return statuses[status].get();
+        }
+
+        int errors() {
+            int errors = statuses[0].get();
+            for (int status = 500; status < statuses.length; status++) {
+                errors += status == 503 ? 0 : statuses[status].get();
+            }
+            return errors;
+        }
+
+        double achieved() {
+            return completed.get() / (elapsedNanos / 1e9);
+        }
+
+        double goodput() {
+            int succeeded = 0;
+            for (int status = 200; status < 300; status++) {
+                succeeded += statuses[status].get();
+            }
+            return succeeded / (elapsedNanos / 1e9);
+        }
+
+        String summary() {
+            Histogram all = histogram(null);
+            return String.format("offered %d req/s: achieved %.1f req/s, goodput %.1f req/s, p50 %.1f ms, p99 %.1f ms, max %.1f ms, 429 %d, 503 %d, errors %d",
+                    offered, achieved(), goodput(), millis(all, 50), millis(all, 99), all.getMaxValue() / 1000.0,
+                    status(429), status(503), errors());
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.cypcode.transfer_service.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Cold start per runtime option: launches the packaged service as a new process against a {@link FakeLedger} and
+ * measures the time from process start to the first successful {@code POST /transfers}, and the process RSS at that
+ * moment (and its peak so far) from /proc, so it needs Linux. Each option is started {@code startup.runs} times and
+ * the medians are reported. Options build on each other:
+ * <ul>
+ *     <li>jar: {@code java -jar}, default profile</li>
+ *     <li>fast-start: the fast-start profile</li>
+ *     <li>cds: fast-start, from the extracted jar with a CDS archive recorded by a training run</li>
+ *     <li>aot: fast-start with Spring AOT on the JVM; needs a jar built with -Pnative</li>
+ *     <li>aot-cds: aot and cds together</li>
+ *     <li>native: the GraalVM native executable from mvn -Pnative native:compile</li>
+ * </ul>
+ * Options whose artifacts are missing are reported as skipped.
+ *
+ * <p>Run: mvn -Pnative -DskipTests package, then mvn -Pperf test-compile exec:exec@startup-test
+ */
+public class StartupHarness {
+
+    private static final String TRANSFER = "{\"fromAccountId\":12345,\"toAccountId\":56789,\"amount\":200}";
+    private static final String PROFILE = "--spring.profiles.active=fast-start";
+    // outside the local profile the node id must be given
+    private static final String NODE_ID = "--cypcode.service.transfer.id-generator.node-id=0";
+
+    private final Path jar;
+    private final Path nativeExecutable;
+    private final Path workDir;
+    private final List<String> jvmArgs;
+    private final Duration timeout;
+    private final String ledgerUrl;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    StartupHarness(Path jar, Path nativeExecutable, Path workDir, List<String> jvmArgs, Duration timeout, String ledgerUrl) {
+        this.jar = jar;
+        this.nativeExecutable = nativeExecutable;
+        this.workDir = workDir;
+        this.jvmArgs = jvmArgs;
+        this.timeout = timeout;
+        this.ledgerUrl = ledgerUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = System.getProperty("startup.jar") != null ? Path.of(System.getProperty("startup.jar")) : findJar(Path.of("target"));
+        Path nativeExecutable = Path.of(System.getProperty("startup.native", "target/transfer-service"));
+        Path workDir = Path.of(System.getProperty("startup.work-dir", "target/startup"));
+        List<String> options = List.of(System.getProperty("startup.options", "jar,fast-start,cds,aot,aot-cds,native").split(","));
+        int runs = Integer.getInteger("startup.runs", 3);
+        String jvmArgs = System.getProperty("startup.jvm-args", "").trim();
+        Duration timeout = Duration.ofSeconds(Long.getLong("startup.timeout-seconds", 180));
+
+        Files.createDirectories(workDir);
+        try (FakeLedger ledger = new FakeLedger(0, 0, 0)) {
+            StartupHarness harness = new StartupHarness(jar, nativeExecutable, workDir,
+                    jvmArgs.isEmpty() ? List.of() : List.of(jvmArgs.split("\\s+")), timeout, ledger.getBaseUrl());
+            System.out.printf("Jar: %s, JVM args: %s, %d runs per option, %d CPUs%n", jar, harness.jvmArgs, runs,
+                    Runtime.getRuntime().availableProcessors());
+            List<String> report = new ArrayList<>();
+            for (String option : options) {
+                report.add(harness.measure(option.trim(), runs));
+            }
+            System.out.println();
+            System.out.printf("%-12s %22s %14s %14s%n", "option", "first POST ms (median)", "RSS MB", "peak RSS MB");
+            report.forEach(System.out::println);
+        }
+    }
+
+    String measure(String option, int runs) throws IOException, InterruptedException {
+        List<String> command;
+        try {
+            command = prepare(option);
+        } catch (IllegalStateException e) {
+            System.out.printf("%s: skipped, %s%n", option, e.getMessage());
+            return String.format("%-12s %22s", option, "skipped");
+        }
+        long[] millis = new long[runs];
+        long[] rss = new long[runs];
+        long[] peakRss = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            long[] result = start(command, workDir.resolve(option + "-" + run + ".log"));
+            millis[run] = result[0];
+            rss[run] = result[1];
+            peakRss[run] = result[2];
+            System.out.printf("%s run %d: first POST after %d ms, RSS %d MB, peak RSS %d MB%n", option, run + 1,
+                    millis[run], rss[run] >> 10, peakRss[run] >> 10);
+        }
+        return String.format("%-12s %22d %14d %14d", option, median(millis), median(rss) >> 10, median(peakRss) >> 10);
+    }
+
+    private List<String> prepare(String option) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return switch (option) {
+            case "jar" -> javaCommand(java, List.of(), jar);
+            case "fast-start" -> javaCommand(java, List.of(), jar, PROFILE);
+            case "aot" -> javaCommand(java, List.of(requireAot()), jar, PROFILE);
+            case "cds" -> cdsCommand(java, List.of());
+            case "aot-cds" -> cdsCommand(java, List.of(requireAot()));
+            case "native" -> {
+                if (!Files.isExecutable(nativeExecutable)) {
+                    throw new IllegalStateException("no native executable at " + nativeExecutable + " (mvn -Pnative native:compile)");
+                }
+                yield List.of(nativeExecutable.toString(), PROFILE, NODE_ID);
+            }
+            default -> throw new IllegalStateException("unknown option");
+        };
+    }
+
+    private List<String> javaCommand(String java, List<String> flags, Path jar, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmArgs);
+        command.addAll(flags);
+        command.add("-jar");
+        command.add(jar.toString());
+        command.addAll(Arrays.asList(args));
+        command.add(NODE_ID);
+        return command;
+    }
+
+    /**
+     * Extracts the jar the way the Dockerfile does and records the classes loaded up to a refreshed context into a CDS
+     * archive, with the same flags the measured runs use.
+     */
+    private List<String> cdsCommand(String java, List<String> flags) throws IOException, InterruptedException {
+        Path extracted = workDir.resolve("extracted").toAbsolutePath();
+        if (!Files.exists(extracted)) {
+            run(List.of(java, "-Djarmode=tools", "-jar", jar.toString(), "extract", "--destination", extracted.toString()),
+                    workDir.resolve("extract.log"));
+        }
+        Path application = extracted.resolve(jar.getFileName());
+        Path archive = workDir.resolve((flags.isEmpty() ? "application" : "application-aot") + ".jsa").toAbsolutePath();
+        Files.deleteIfExists(archive);
+        List<String> training = new ArrayList<>(flags);
+        training.add("-XX:ArchiveClassesAtExit=" + archive);
+        training.add("-Dspring.context.exit=onRefresh");
+        run(javaCommand(java, training, application, PROFILE), workDir.resolve(archive.getFileName() + ".log"));
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException("training run wrote no CDS archive, see " + workDir.resolve(archive.getFileName() + ".log"));
+        }
+        List<String> measured = new ArrayList<>(flags);
+        measured.add("-XX:SharedArchiveFile=" + archive);
+        return javaCommand(java, measured, application, PROFILE);
+    }
+
+    private String requireAot() throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            if (jarFile.stream().noneMatch(entry -> entry.getName().endsWith("__ApplicationContextInitializer.class"))) {
+                throw new IllegalStateException(jar + " is not AOT-processed (mvn -Pnative package)");
+            }
+        }
+        return "-Dspring.aot.enabled=true";
+    }
+
+    /**
+     * Returns the milliseconds to the first successful POST /transfers, and the RSS and peak RSS in KB at that moment.
+     */
+    private long[] start(List<String> command, Path log) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> arguments = new ArrayList<>(command);
+        arguments.add("--server.port=" + port);
+        arguments.add("--cypcode.service.ledger.base-url=" + ledgerUrl);
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(arguments).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            URI uri = URI.create("http://localhost:" + port + "/transfers");
+            long deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("service exited with " + process.exitValue() + ", see " + log);
+                }
+                if (transferSucceeds(uri)) {
+                    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    return new long[]{millis, statusKb(process.pid(), "VmRSS"), statusKb(process.pid(), "VmHWM")};
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("no successful POST /transfers within " + timeout + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private boolean transferSucceeds(URI uri) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(HttpRequest.BodyPublishers.ofString(TRANSFER))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() / 100 == 2;
+        } catch (IOException e) {
+            // not listening yet
+            return false;
+        }
+    }
+
+    private static void run(List<String> command, Path log) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException(String.join(" ", command) + " failed, see " + log);
+        }
+    }
+
+    private static long statusKb(long pid, String field) throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) {
+            if (line.startsWith(field + ":")) {
+                return Long.parseLong(line.substring(field.length() + 1).replace("kB", "").trim());
+            }
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static Path findJar(Path target) throws IOException {
+        try (Stream<Path> files = Files.list(target)) {
+            return files.filter(file -> file.getFileName().toString().matches("transfer-service-.*\\.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("no service jar in " + target + ", run mvn package first"));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.cypcode.transfer_service.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyBeanConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class))
+            .withUserConfiguration(LazyBeanConfiguration.class)
+            .withBean("transfers", ArrayList.class);
+
+    @Test
+    public void testBeansDeclaredInLazyPackagesAreLazy() {
+        contextRunner
+                .withPropertyValues("cypcode.service.startup.lazy-packages=org.springframework.boot.autoconfigure.jackson,java.util")
+                .run(context -> {
+                    // created by a @Bean method of JacksonAutoConfiguration, and by its own class
+                    assertTrue(context.getBeanFactory().getBeanDefinition("jacksonObjectMapper").isLazyInit());
+                    assertTrue(context.getBeanFactory().getBeanDefinition("transfers").isLazyInit());
+                    assertFalse(context.getBeanFactory().getBeanDefinition("lazyBeanConfiguration").isLazyInit());
+                    assertNotNull(context.getBean("jacksonObjectMapper"));
+                });
+    }
+
+    @Test
+    public void testNothingIsLazyByDefault() {
+        contextRunner.run(context -> {
+            assertFalse(context.getBeanFactory().getBeanDefinition("jacksonObjectMapper").isLazyInit());
+            assertFalse(context.getBeanFactory().getBeanDefinition("transfers").isLazyInit());
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package com.cypcode.transfer_service.configuration;
+
+import com.cypcode.transfer_service.common.exception.LedgerOverloadedException;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.support.StubLedgerServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives far more concurrent callers at the ledger than it can serve, against a stub whose latency grows with its own
+ * in-flight count, and checks that the limiter keeps the latency of admitted calls near the threshold by shedding
+ * the excess.
+ */
+@SpringBootTest(properties = {
+        "cypcode.service.ledger.limiter.initial-limit=20",
+        "cypcode.service.ledger.limiter.min-limit=5",
+        "cypcode.service.ledger.limiter.max-limit=200",
+        "cypcode.service.ledger.limiter.latency-threshold-ms=200",
+        "spring.cloud.openfeign.httpclient.max-connections=400",
+        "spring.cloud.openfeign.httpclient.max-connections-per-route=200"
+})
+public class LedgerConcurrencyLimiterTest {
+    private static final int CALLERS = 150;
+    private static final long LATENCY_THRESHOLD_MS = 200;
+
+    // 20ms up to 20 concurrent requests, then 4ms more for each: the ledger serves about 65 at once within 200ms
+    private static final StubLedgerServer stubLedger = startStubLedger();
+
+    @Autowired
+    private LedgerFeignClient ledgerFeignClient;
+
+    @Autowired
+    private LedgerConcurrencyLimiter ledgerConcurrencyLimiter;
+
+    @DynamicPropertySource
+    static void ledgerProperties(DynamicPropertyRegistry registry) {
+        registry.add("cypcode.service.ledger.base-url", stubLedger::getBaseUrl);
+    }
+
+    @AfterAll
+    static void stopStubLedger() {
+        stubLedger.close();
+    }
+
+    @Test
+    public void testOverloadIsShedAndLatencyStaysBounded() throws Exception {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger shed = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        AtomicLong transferIds = new AtomicLong();
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(2);
+
+        try (ExecutorService callers = Executors.newFixedThreadPool(CALLERS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int caller = 0; caller < CALLERS; caller++) {
+                futures.add(callers.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        try {
+                            ledgerFeignClient.createTransfer(buildTransfer(transferIds.incrementAndGet()));
+                            if (start > warmupEnd) {
+                                latencies.add(System.nanoTime() - start);
+                                peakInFlight.accumulateAndGet(stubLedger.getInFlight(), Math::max);
+                            }
+                        } catch (LedgerOverloadedException e) {
+                            shed.incrementAndGet();
+                            sleep(25);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        long p50Ms = TimeUnit.NANOSECONDS.toMillis(sorted.get(sorted.size() / 2));
+        long p99Ms = TimeUnit.NANOSECONDS.toMillis(sorted.get((int) (sorted.size() * 0.99)));
+        System.out.printf("Limiter under %d callers: %d admitted, %d shed, limit %.1f, peak ledger in-flight %d, p50 %d ms, p99 %d ms%n",
+                CALLERS, sorted.size(), shed.get(), ledgerConcurrencyLimiter.getLimit(), peakInFlight.get(), p50Ms, p99Ms);
+
+        assertTrue(shed.get() > 0, "no calls were shed");
+        assertTrue(peakInFlight.get() < CALLERS, "ledger saw " + peakInFlight.get() + " concurrent calls");
+        // unlimited, 150 callers would push every call past 500ms
+        assertTrue(p99Ms < 2 * LATENCY_THRESHOLD_MS, "p99 " + p99Ms + " ms");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TransferDTO buildTransfer(long transferId) {
+        return TransferDTO.builder()
+                .transferId(transferId)
+                .fromAccountId(12345)
+                .toAccountId(56789)
+                .amount(BigDecimal.valueOf(200))
+                .build();
+    }
+
+    private static StubLedgerServer startStubLedger() {
+        try {
+            return new StubLedgerServer() {
+                @Override
+                protected long latencyFor(int inFlight) {
+                    return 20 + 4L * Math.max(0, inFlight - 20);
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.cypcode.transfer_service.configuration;
+
+import com.cypcode.transfer_service.common.exception.LedgerUnavailableException;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.support.StubLedgerServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class LedgerFeignClientTest {
+    private static final StubLedgerServer stubLedger = startStubLedger();
+
+    @Autowired
+    private LedgerFeignClient ledgerFeignClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void ledgerProperties(DynamicPropertyRegistry registry) {
+        registry.add("cypcode.service.ledger.base-url", stubLedger::getBaseUrl);
+    }
+
+    @AfterAll
+    static void stopStubLedger() {
+        stubLedger.close();
+    }
+
+    @BeforeEach
+    public void init(){
+        stubLedger.reset();
+    }
+
+    @Test
+    public void testSequentialCallsReuseOneConnection() {
+        for (int i = 0; i < 20; i++) {
+            ResponseEntity<String> response = ledgerFeignClient.createTransfer(buildTransfer(i));
+            assertEquals("SUCCESS", response.getBody());
+        }
+
+        assertEquals(20, stubLedger.getRequestCount());
+        assertEquals(1, stubLedger.getConnectionCount());
+    }
+
+    @Test
+    public void testConcurrentCallsArePooled() throws Exception {
+        stubLedger.setLatencyMs(50);
+        try (ExecutorService executor = Executors.newFixedThreadPool(10)) {
+            for (int round = 0; round < 5; round++) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    long transferId = round * 10L + i;
+                    futures.add(executor.submit(() -> ledgerFeignClient.createTransfer(buildTransfer(transferId))));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+        }
+
+        assertEquals(50, stubLedger.getRequestCount());
+        assertTrue(stubLedger.getConnectionCount() <= 10, "opened " + stubLedger.getConnectionCount() + " connections");
+        assertNotNull(meterRegistry.find("httpcomponents.httpclient.pool.total.max").gauge());
+    }
+
+    @Test
+    public void testLedgerErrorIsNotReportedAsSuccess() {
+        stubLedger.setErrorRate(1.0);
+
+        assertThrows(LedgerUnavailableException.class, () -> ledgerFeignClient.createTransfer(buildTransfer(1)));
+    }
+
+    private static TransferDTO buildTransfer(long transferId) {
+        return TransferDTO.builder()
+                .transferId(transferId)
+                .fromAccountId(12345)
+                .toAccountId(56789)
+                .amount(BigDecimal.valueOf(200))
+                .build();
+    }
+
+    private static StubLedgerServer startStubLedger() {
+        try {
+            return new StubLedgerServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package com.cypcode.transfer_service.controller;
 
+import com.cypcode.transfer_service.common.exception.LedgerUnavailableException;
 import com.cypcode.transfer_service.configuration.LedgerFeignClient;
+import com.cypcode.transfer_service.entity.BatchJobStatus;
+import com.cypcode.transfer_service.entity.dto.BatchJobDTO;
 import com.cypcode.transfer_service.entity.dto.IdempotencyDTO;
 import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.entity.dto.TransferStatusDTO;
+import com.cypcode.transfer_service.entity.dto.TransferStatusQueryDTO;
+import com.cypcode.transfer_service.service.BatchJobService;
 import com.cypcode.transfer_service.service.TransferService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,18 +20,26 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.math.BigDecimal;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +50,9 @@ public class TransferControllerTest {
     @Mock
     private TransferService transferService;
 
+    @Mock
+    private BatchJobService batchJobService;
+
     @InjectMocks
     private TransferController transferController;
 
@@ -76,6 +94,103 @@ public class TransferControllerTest {
         verify(transferService, times(1)).createTransferWithIndempotency(payload, idempotencyKey);
     }
 
+    @Test
+    public void testCachedReplayBypassesController() throws Exception {
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        byte[] replay = "{\"id\":\"18ad19fa-c93a-484c-a964-e46a0fb7f3c6\",\"transferId\":123456789,\"response\":\"SUCCESS\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        mockMvc = MockMvcBuilders.standaloneSetup(transferController).addFilters(buildReplayFilter()).build();
+        when(transferService.findReplayResponse(idempotencyKey)).thenReturn(replay);
+
+        mockMvc.perform(post(url)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(buildPayload())))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().bytes(replay));
+
+        verify(transferService, never()).createTransferWithIndempotency(any(), any());
+    }
+
+    @Test
+    public void testCachedReplayOfInvalidBodyIsRejected() throws Exception {
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        mockMvc = MockMvcBuilders.standaloneSetup(transferController).addFilters(buildReplayFilter()).build();
+        when(transferService.findReplayResponse(idempotencyKey)).thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(post(url)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fromAccountId\":12345}"))
+                .andExpect(status().isBadRequest());
+
+        verify(transferService, never()).createTransferWithIndempotency(any(), any());
+    }
+
+    @Test
+    public void testCrossOriginReplayKeepsCorsHeaders() throws Exception {
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        TransferDTO payload = buildPayload();
+        mockMvc = MockMvcBuilders.standaloneSetup(transferController).addFilters(buildReplayFilter()).build();
+        lenient().when(transferService.findReplayResponse(idempotencyKey)).thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+        when(transferService.createTransferWithIndempotency(payload, idempotencyKey)).thenReturn(IdempotencyDTO.builder()
+                .id(idempotencyKey)
+                .transferId(payload.getTransferId())
+                .response("SUCCESS")
+                .build());
+
+        mockMvc.perform(post(url)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .header("Origin", "http://example.com")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Access-Control-Allow-Origin", "*"));
+    }
+
+    @Test
+    public void testUnavailableLedgerReturnsRetryAfter() throws Exception {
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        TransferDTO payload = TransferDTO.builder()
+                .fromAccountId(12345)
+                .toAccountId(56789)
+                .amount(BigDecimal.valueOf(200))
+                .build();
+        ReflectionTestUtils.setField(transferController, "unavailableRetryAfterSeconds", 5L);
+        when(transferService.createTransferWithIndempotency(payload, idempotencyKey))
+                .thenThrow(new LedgerUnavailableException("Ledger unavailable"));
+        mockMvc.perform(post(url)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+    }
+
+    @Test
+    public void testQueuedTransferIsAccepted() throws Exception {
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        TransferDTO payload = TransferDTO.builder()
+                .fromAccountId(12345)
+                .toAccountId(56789)
+                .amount(BigDecimal.valueOf(200))
+                .build();
+        when(transferService.createTransferWithIndempotency(payload, idempotencyKey)).thenReturn(IdempotencyDTO.builder()
+                .id(idempotencyKey)
+                .transferId(123456789L)
+                .status(TransferStatusDTO.Status.PENDING)
+                .expiryDate(LocalDateTime.now().plusHours(2))
+                .build());
+        mockMvc.perform(post(url)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/transfers/123456789"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
     @Test
     public void testGetTransfer() throws Exception {
         String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
@@ -92,6 +207,52 @@ public class TransferControllerTest {
         verify(transferService, times(1)).getTransferById(response.getTransferId());
     }
 
+    @Test
+    public void testGetTransferStatuses() throws Exception {
+        TransferStatusQueryDTO query = TransferStatusQueryDTO.builder()
+                .transferIds(List.of(123456789L, 987654321L))
+                .idempotencyKeys(List.of("18ad19fa-c93a-484c-a964-e46a0fb7f3c6"))
+                .build();
+        MvcResult result = mockMvc.perform(post(url + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(query)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON));
+
+        verify(transferService, times(1)).streamTransferStatuses(eq(query), any());
+    }
+
+    @Test
+    public void testGetTransferStatusRange() throws Exception {
+        MvcResult result = mockMvc.perform(get(url + "/status")
+                        .param("fromTransferId", "100")
+                        .param("toTransferId", "200"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        verify(transferService, times(1)).streamTransferStatusRange(eq(100L), eq(200L), any());
+        verify(transferService, never()).getTransferById(anyLong());
+    }
+
+    @Test
+    public void testInvalidTransferStatusQueriesAreRejected() throws Exception {
+        mockMvc.perform(post(url + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get(url + "/status")
+                        .param("fromTransferId", "200")
+                        .param("toTransferId", "100"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(transferService);
+    }
+
     @Test
     public void testCreateBatchTransfer() throws Exception {
         TransferDTO payload = TransferDTO.builder()
@@ -110,4 +271,51 @@ public class TransferControllerTest {
         verify(transferService, times(1)).batchTransfer(payloads);
     }
 
+    @Test
+    public void testSubmitBatchJob() throws Exception {
+        TransferDTO payload = TransferDTO.builder()
+                .fromAccountId(12345)
+                .toAccountId(56789)
+                .amount(BigDecimal.valueOf(200))
+                .build();
+        List<TransferDTO> payloads = List.of(payload);
+        BatchJobDTO job = BatchJobDTO.builder()
+                .jobId("3f1c7a52-1f7e-4b8e-9d0a-5c2f4e8b6a11")
+                .status(BatchJobStatus.SUBMITTED)
+                .totalItems(1)
+                .pendingItems(1)
+                .build();
+        when(batchJobService.submitJob(payloads)).thenReturn(job);
+        mockMvc.perform(post(url + "/batch/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payloads)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/transfers/batch/" + job.getJobId()));
+
+        verify(batchJobService, times(1)).submitJob(payloads);
+        verify(batchJobService, times(1)).dispatchJobs();
+    }
+
+    @Test
+    public void testGetUnknownBatchJob() throws Exception {
+        mockMvc.perform(get(url + "/batch/{jobId}", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    private IdempotentReplayFilter buildReplayFilter() {
+        IdempotentReplayFilter replayFilter = new IdempotentReplayFilter();
+        ReflectionTestUtils.setField(replayFilter, "transferService", transferService);
+        ReflectionTestUtils.setField(replayFilter, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(replayFilter, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        return replayFilter;
+    }
+
+    private TransferDTO buildPayload() {
+        return TransferDTO.builder()
+                .transferId(123456789)
+                .fromAccountId(12345)
+                .toAccountId(56789)
+                .amount(BigDecimal.valueOf(200))
+                .build();
+    }
 }
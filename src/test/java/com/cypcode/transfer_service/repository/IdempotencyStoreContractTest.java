@@ -0,0 +1,201 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link IdempotencyStore} must share; each implementation runs it through a subclass.
+ */
+public abstract class IdempotencyStoreContractTest {
+
+    protected abstract IdempotencyStore store();
+
+    @Test
+    public void testReserveIsPutIfAbsent() {
+        String key = UUID.randomUUID().toString();
+        long transferId = nextTransferId();
+
+        assertTrue(store().reserve(key, transferId, LocalDateTime.now().plusSeconds(30)));
+        assertFalse(store().reserve(key, nextTransferId(), LocalDateTime.now().plusSeconds(30)));
+
+        Idempotency reserved = store().findById(key);
+        assertEquals(IdempotencyStatus.RESERVED, reserved.getStatus());
+        assertEquals(transferId, reserved.getTransferId());
+        assertNull(reserved.getResponse());
+    }
+
+    @Test
+    public void testConcurrentReservationsHaveOneWinner() throws Exception {
+        String key = UUID.randomUUID().toString();
+        int callers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> reservations = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                long transferId = nextTransferId();
+                reservations.add(executor.submit(() -> {
+                    start.await();
+                    return store().reserve(key, transferId, LocalDateTime.now().plusSeconds(30));
+                }));
+            }
+            start.countDown();
+            int won = 0;
+            for (Future<Boolean> reservation : reservations) {
+                won += reservation.get() ? 1 : 0;
+            }
+            assertEquals(1, won);
+        }
+    }
+
+    @Test
+    public void testExpiredEntryCanBeReservedAgain() {
+        String key = UUID.randomUUID().toString();
+        store().saveAll(List.of(buildIdempotency(key, nextTransferId(), LocalDateTime.now().minusMinutes(1))));
+
+        assertNull(store().findById(key));
+        long transferId = nextTransferId();
+        assertTrue(store().reserve(key, transferId, LocalDateTime.now().plusSeconds(30)));
+        assertEquals(transferId, store().findById(key).getTransferId());
+    }
+
+    @Test
+    public void testSaveAllUpsertsAndIsReadableByKeyAndTransferId() {
+        String reservedKey = UUID.randomUUID().toString();
+        long reservedTransferId = nextTransferId();
+        store().reserve(reservedKey, reservedTransferId, LocalDateTime.now().plusSeconds(30));
+        String newKey = UUID.randomUUID().toString();
+        long newTransferId = nextTransferId();
+
+        store().saveAll(List.of(
+                buildIdempotency(reservedKey, reservedTransferId, LocalDateTime.now().plusHours(2)),
+                buildIdempotency(newKey, newTransferId, LocalDateTime.now().plusHours(2))));
+
+        Idempotency completed = store().findById(reservedKey);
+        assertEquals(IdempotencyStatus.COMPLETED, completed.getStatus());
+        assertEquals("SUCCESS", completed.getResponse());
+        assertEquals(newKey, store().findByTransferId(newTransferId).getId());
+        assertEquals(reservedKey, store().findByTransferId(reservedTransferId).getId());
+        List<Idempotency> found = store().findAllById(List.of(reservedKey, newKey, UUID.randomUUID().toString()));
+        assertEquals(2, found.size());
+    }
+
+    @Test
+    public void testFindByTransferIdsAndRangeReturnLiveEntries() {
+        long base = nextTransferId() / 2;
+        List<Idempotency> entries = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            entries.add(buildIdempotency(UUID.randomUUID().toString(), base + i * 2, LocalDateTime.now().plusHours(2)));
+        }
+        entries.add(buildIdempotency(UUID.randomUUID().toString(), base + 3, LocalDateTime.now().minusMinutes(1)));
+        store().saveAll(entries);
+
+        List<Long> found = store().findAllByTransferId(List.of(base + 2, base, base + 2, base + 3, base + 1)).stream()
+                .map(Idempotency::getTransferId)
+                .sorted()
+                .toList();
+        assertEquals(List.of(base, base + 2), found);
+
+        List<Long> firstPage = store().findByTransferIdRange(base, base + 10, 4).stream().map(Idempotency::getTransferId).toList();
+        assertEquals(List.of(base, base + 2, base + 4, base + 6), firstPage);
+        List<Long> lastPage = store().findByTransferIdRange(base + 7, base + 10, 4).stream().map(Idempotency::getTransferId).toList();
+        assertEquals(List.of(base + 8, base + 10), lastPage);
+    }
+
+    @Test
+    public void testTransitionAndExtendRequireStatusAndTransferId() {
+        String key = UUID.randomUUID().toString();
+        long transferId = nextTransferId();
+        store().reserve(key, transferId, LocalDateTime.now().plusSeconds(30));
+        LocalDateTime expiryDate = LocalDateTime.now().plusHours(2);
+
+        assertFalse(store().transition(key, transferId + 1, IdempotencyStatus.RESERVED, IdempotencyStatus.PENDING, "PENDING", expiryDate));
+        assertFalse(store().transition(key, transferId, IdempotencyStatus.PENDING, IdempotencyStatus.COMPLETED, "SUCCESS", expiryDate));
+        assertTrue(store().transition(key, transferId, IdempotencyStatus.RESERVED, IdempotencyStatus.PENDING, "PENDING", expiryDate));
+        assertEquals(IdempotencyStatus.PENDING, store().findById(key).getStatus());
+
+        LocalDateTime extended = LocalDateTime.now().plusHours(3);
+        assertFalse(store().extend(key, transferId, IdempotencyStatus.RESERVED, extended));
+        assertTrue(store().extend(key, transferId, IdempotencyStatus.PENDING, extended));
+        assertTrue(store().findById(key).getExpiryDate().isAfter(expiryDate));
+        assertEquals("PENDING", store().findById(key).getResponse());
+    }
+
+    @Test
+    public void testReleaseRemovesOnlyReservations() {
+        String reservedKey = UUID.randomUUID().toString();
+        long reservedTransferId = nextTransferId();
+        store().reserve(reservedKey, reservedTransferId, LocalDateTime.now().plusSeconds(30));
+        String completedKey = UUID.randomUUID().toString();
+        long completedTransferId = nextTransferId();
+        store().saveAll(List.of(buildIdempotency(completedKey, completedTransferId, LocalDateTime.now().plusHours(2))));
+
+        assertFalse(store().release(reservedKey, reservedTransferId + 1));
+        assertTrue(store().release(reservedKey, reservedTransferId));
+        assertFalse(store().release(completedKey, completedTransferId));
+        assertFalse(store().release(UUID.randomUUID().toString(), nextTransferId()));
+
+        assertNull(store().findById(reservedKey));
+        assertNotNull(store().findById(completedKey));
+        assertTrue(store().reserve(reservedKey, nextTransferId(), LocalDateTime.now().plusSeconds(30)));
+    }
+
+    @Test
+    public void testLapsedOwnerCannotReleaseTakenOverKey() {
+        String key = UUID.randomUUID().toString();
+        long lapsedTransferId = nextTransferId();
+        store().reserve(key, lapsedTransferId, LocalDateTime.now().minusSeconds(1));
+        long ownerTransferId = nextTransferId();
+        assertTrue(store().reserve(key, ownerTransferId, LocalDateTime.now().plusSeconds(30)));
+
+        assertFalse(store().release(key, lapsedTransferId));
+        assertEquals(ownerTransferId, store().findById(key).getTransferId());
+    }
+
+    @Test
+    public void testPurgeExpiredIsBoundedAndKeepsLiveEntries() {
+        String liveKey = UUID.randomUUID().toString();
+        long liveTransferId = nextTransferId();
+        List<Idempotency> entries = new ArrayList<>();
+        entries.add(buildIdempotency(liveKey, liveTransferId, LocalDateTime.now().plusHours(2)));
+        for (int i = 0; i < 5; i++) {
+            entries.add(buildIdempotency(UUID.randomUUID().toString(), nextTransferId(), LocalDateTime.now().minusMinutes(1)));
+        }
+        store().saveAll(entries);
+
+        int purged;
+        do {
+            purged = store().purgeExpired(LocalDateTime.now(), 2);
+            assertTrue(purged <= 2, "purged " + purged);
+        } while (purged == 2);
+
+        assertEquals(0, store().purgeExpired(LocalDateTime.now(), 2));
+        assertEquals(liveKey, store().findByTransferId(liveTransferId).getId());
+    }
+
+    protected static Idempotency buildIdempotency(String id, long transferId, LocalDateTime expiryDate) {
+        return Idempotency.builder()
+                .id(id)
+                .transferId(transferId)
+                .response("SUCCESS")
+                .expiryDate(expiryDate)
+                .status(IdempotencyStatus.COMPLETED)
+                .build();
+    }
+
+    protected static long nextTransferId() {
+        return ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    }
+}
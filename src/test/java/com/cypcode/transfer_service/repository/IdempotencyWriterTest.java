@@ -0,0 +1,127 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+public class IdempotencyWriterTest {
+    private static final int WRITES = 200;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IIdempotencyRepository idempotencyRepository;
+
+    @Test
+    public void testGroupCommitPersistsBeforeReturningAndBatchesWrites() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IdempotencyWriter writer = new IdempotencyWriter(idempotencyStore, meterRegistry,
+                IdempotencyWriter.Mode.GROUP_COMMIT, 16, 20, 1_000);
+        writer.start();
+        String reservedKey = UUID.randomUUID().toString();
+        idempotencyRepository.reserve(reservedKey, 1L, LocalDateTime.now().plusSeconds(30));
+
+        List<String> keys = new ArrayList<>();
+        keys.add(reservedKey);
+        for (int i = 1; i < WRITES; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(32)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String key : keys) {
+                futures.add(executor.submit(() -> {
+                    writer.write(buildIdempotency(key));
+                    // group commit only returns once the row is visible
+                    assertNotNull(idempotencyRepository.findIdempotencyById(key));
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            writer.stop();
+        }
+
+        IdempotencyView completed = idempotencyRepository.findIdempotencyById(reservedKey);
+        assertEquals(IdempotencyStatus.COMPLETED, completed.status());
+        assertEquals("SUCCESS", completed.response());
+        long batches = meterRegistry.get("idempotency.writer.batch.size").summary().count();
+        assertTrue(batches < WRITES, "expected grouped writes but saw " + batches + " batches");
+    }
+
+    @Test
+    public void testFailingRecordDoesNotFailTheRestOfItsBatch() throws Exception {
+        String badKey = UUID.randomUUID().toString();
+        IdempotencyStore failingStore = mock(IdempotencyStore.class);
+        doAnswer(invocation -> {
+            List<Idempotency> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(idempotency -> idempotency.getId().equals(badKey))) {
+                throw new IllegalStateException("value too long");
+            }
+            idempotencyStore.saveAll(batch);
+            return null;
+        }).when(failingStore).saveAll(any());
+        IdempotencyWriter writer = new IdempotencyWriter(failingStore, new SimpleMeterRegistry(),
+                IdempotencyWriter.Mode.GROUP_COMMIT, 16, 200, 1_000);
+        writer.start();
+
+        List<String> keys = List.of(UUID.randomUUID().toString(), badKey, UUID.randomUUID().toString());
+        try (ExecutorService executor = Executors.newFixedThreadPool(keys.size())) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String key : keys) {
+                futures.add(executor.submit(() -> writer.write(buildIdempotency(key))));
+            }
+            futures.get(0).get();
+            futures.get(2).get();
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> futures.get(1).get());
+            assertEquals("value too long", failure.getCause().getMessage());
+        } finally {
+            writer.stop();
+        }
+
+        assertNotNull(idempotencyRepository.findIdempotencyById(keys.get(0)));
+        assertNull(idempotencyRepository.findIdempotencyById(badKey));
+        assertNotNull(idempotencyRepository.findIdempotencyById(keys.get(2)));
+    }
+
+    @Test
+    public void testWritesAfterStopFailImmediately() throws Exception {
+        IdempotencyWriter writer = new IdempotencyWriter(idempotencyStore, new SimpleMeterRegistry(),
+                IdempotencyWriter.Mode.GROUP_COMMIT, 16, 20, 1_000);
+        writer.start();
+        writer.stop();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                assertThrows(IllegalStateException.class, () -> writer.write(buildIdempotency(UUID.randomUUID().toString()))));
+    }
+
+    private Idempotency buildIdempotency(String id) {
+        return Idempotency.builder()
+                .id(id)
+                .transferId((long) Math.abs(id.hashCode()))
+                .response("SUCCESS")
+                .expiryDate(LocalDateTime.now().plusHours(2))
+                .status(IdempotencyStatus.COMPLETED)
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.cypcode.transfer_service.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+public class JdbcIdempotencyStoreTest extends IdempotencyStoreContractTest {
+
+    @Autowired
+    private JdbcIdempotencyStore idempotencyStore;
+
+    @Override
+    protected IdempotencyStore store() {
+        return idempotencyStore;
+    }
+}
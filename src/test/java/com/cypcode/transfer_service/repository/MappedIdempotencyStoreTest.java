@@ -0,0 +1,116 @@
+package com.cypcode.transfer_service.repository;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedIdempotencyStoreTest extends IdempotencyStoreContractTest {
+
+    @TempDir
+    private Path directory;
+
+    private Path path;
+
+    private MappedIdempotencyStore idempotencyStore;
+
+    @BeforeEach
+    public void init() throws IOException {
+        path = directory.resolve("idempotency.store");
+        idempotencyStore = new MappedIdempotencyStore(path, 1, false);
+    }
+
+    @AfterEach
+    public void destroy() throws IOException {
+        idempotencyStore.close();
+    }
+
+    @Override
+    protected IdempotencyStore store() {
+        return idempotencyStore;
+    }
+
+    @Test
+    public void testEntriesSurviveReopen() throws IOException {
+        LocalDateTime leaseExpiry = LocalDateTime.now().plusSeconds(30);
+        idempotencyStore.reserve("reserved", 1L, leaseExpiry);
+        idempotencyStore.reserve("released", 2L, leaseExpiry);
+        idempotencyStore.release("released", 2L);
+        idempotencyStore.saveAll(List.of(
+                buildIdempotency("completed", 3L, LocalDateTime.now().plusHours(2)),
+                buildIdempotency("expired", 4L, LocalDateTime.now().minusMinutes(1))));
+
+        idempotencyStore = reopen();
+
+        Idempotency reserved = idempotencyStore.findById("reserved");
+        assertEquals(IdempotencyStatus.RESERVED, reserved.getStatus());
+        assertEquals(leaseExpiry.withNano(leaseExpiry.getNano() / 1_000 * 1_000), reserved.getExpiryDate());
+        assertNull(idempotencyStore.findById("released"));
+        assertEquals("SUCCESS", idempotencyStore.findByTransferId(3L).getResponse());
+        assertNull(idempotencyStore.findById("expired"));
+        assertNull(idempotencyStore.findByTransferId(4L));
+        assertFalse(idempotencyStore.reserve("completed", 5L, leaseExpiry));
+    }
+
+    @Test
+    public void testCompactionKeepsLiveEntries() throws IOException {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add("key-" + i);
+        }
+        // about 20 MB of superseded records through a 1 MB file
+        for (int round = 0; round < 3_000; round++) {
+            List<Idempotency> batch = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                batch.add(buildIdempotency(keys.get(i), i, LocalDateTime.now().plusHours(2)));
+            }
+            idempotencyStore.saveAll(batch);
+        }
+
+        assertTrue(Files.size(path) <= 1 << 20, "file grew to " + Files.size(path));
+        idempotencyStore = reopen();
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(keys.get(i), idempotencyStore.findByTransferId(i).getId());
+        }
+    }
+
+    @Test
+    public void testTornWriteIsDiscardedOnReopen() throws IOException {
+        idempotencyStore.saveAll(List.of(buildIdempotency("intact", 1L, LocalDateTime.now().plusHours(2))));
+        idempotencyStore.saveAll(List.of(buildIdempotency("torn", 2L, LocalDateTime.now().plusHours(2))));
+        idempotencyStore.close();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the first record starts after the 8 byte file header; flip a byte in the second record's body
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, 8);
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 8L + length.flip().getInt() + 20);
+        }
+
+        idempotencyStore = new MappedIdempotencyStore(path, 1, false);
+
+        assertNotNull(idempotencyStore.findById("intact"));
+        assertNull(idempotencyStore.findById("torn"));
+        assertTrue(idempotencyStore.reserve("torn", 3L, LocalDateTime.now().plusSeconds(30)));
+        idempotencyStore = reopen();
+        assertEquals(3L, idempotencyStore.findById("torn").getTransferId());
+    }
+
+    private MappedIdempotencyStore reopen() throws IOException {
+        idempotencyStore.close();
+        return new MappedIdempotencyStore(path, 1, false);
+    }
+}
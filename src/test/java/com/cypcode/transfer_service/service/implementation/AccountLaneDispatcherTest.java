@@ -0,0 +1,204 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.common.exception.LedgerUnavailableException;
+import com.cypcode.transfer_service.configuration.LedgerFeignClient;
+import com.cypcode.transfer_service.entity.dto.LedgerTransferResultDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AccountLaneDispatcherTest {
+    private static final long HOT_ACCOUNT = 12345;
+
+    @Mock
+    private LedgerFeignClient ledgerFeignClient;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AccountLaneDispatcher dispatcher;
+
+    @BeforeEach
+    public void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = buildDispatcher(5000);
+    }
+
+    @AfterEach
+    public void destroy() throws InterruptedException {
+        dispatcher.stop();
+    }
+
+    @Test
+    public void testQueuedTransfersFromOneAccountAreCoalescedInOrder() throws Exception {
+        CountDownLatch firstCallStarted = new CountDownLatch(1);
+        CountDownLatch ledgerReleased = new CountDownLatch(1);
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            firstCallStarted.countDown();
+            ledgerReleased.await();
+            return ResponseEntity.ok("SUCCESS");
+        });
+        when(ledgerFeignClient.createTransfers(any())).thenAnswer(invocation -> {
+            List<TransferDTO> payload = invocation.getArgument(0);
+            return ResponseEntity.ok(payload.stream()
+                    .map(item -> LedgerTransferResultDTO.builder().transferId(item.getTransferId()).status(200).response("SUCCESS-" + item.getTransferId()).build())
+                    .toList());
+        });
+
+        CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(() -> dispatcher.dispatch(buildTransfer(1, HOT_ACCOUNT)));
+        assertTrue(firstCallStarted.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<ResponseEntity<String>>> queued = new ArrayList<>();
+        for (long transferId = 2; transferId <= 5; transferId++) {
+            long id = transferId;
+            queued.add(CompletableFuture.supplyAsync(() -> dispatcher.dispatch(buildTransfer(id, HOT_ACCOUNT))));
+            // each transfer is queued before the next is submitted, which fixes the arrival order
+            awaitDepth(id - 1);
+        }
+        ledgerReleased.countDown();
+
+        assertEquals("SUCCESS", first.get(5, TimeUnit.SECONDS).getBody());
+        for (int index = 0; index < queued.size(); index++) {
+            assertEquals("SUCCESS-" + (index + 2), queued.get(index).get(5, TimeUnit.SECONDS).getBody());
+        }
+        verify(ledgerFeignClient).createTransfers(argThat(payload ->
+                payload.stream().map(TransferDTO::getTransferId).toList().equals(List.of(2L, 3L, 4L, 5L))));
+        assertEquals(5, meterRegistry.get("transfer.lane.wait").timer().count());
+        assertEquals(4, meterRegistry.get("transfer.lane.coalesced").summary().max());
+    }
+
+    @Test
+    public void testOtherAccountsAreNotBlockedByAHotAccount() throws Exception {
+        CountDownLatch ledgerReleased = new CountDownLatch(1);
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            TransferDTO transfer = invocation.getArgument(0);
+            if (transfer.getFromAccountId() == HOT_ACCOUNT) {
+                ledgerReleased.await();
+            }
+            return ResponseEntity.ok("SUCCESS");
+        });
+
+        CompletableFuture<ResponseEntity<String>> hot = CompletableFuture.supplyAsync(() -> dispatcher.dispatch(buildTransfer(1, HOT_ACCOUNT)));
+        for (long otherAccount = HOT_ACCOUNT + 1; otherAccount <= HOT_ACCOUNT + 64; otherAccount++) {
+            assertEquals("SUCCESS", dispatcher.dispatch(buildTransfer(otherAccount, otherAccount)).getBody());
+        }
+        assertFalse(hot.isDone());
+
+        ledgerReleased.countDown();
+        assertEquals("SUCCESS", hot.get(5, TimeUnit.SECONDS).getBody());
+    }
+
+    @Test
+    public void testUnsupportedBulkEndpointFallsBackToPerItemCallsInOrder() throws Exception {
+        CountDownLatch firstCallStarted = new CountDownLatch(1);
+        CountDownLatch ledgerReleased = new CountDownLatch(1);
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            firstCallStarted.countDown();
+            ledgerReleased.await();
+            return ResponseEntity.ok("SUCCESS");
+        });
+        Request request = Request.create(Request.HttpMethod.POST, "/ledger/transfer/bulk", Map.of(), null, StandardCharsets.UTF_8, null);
+        when(ledgerFeignClient.createTransfers(any())).thenThrow(new FeignException.NotFound("Not Found", request, null, null));
+
+        List<CompletableFuture<ResponseEntity<String>>> transfers = new ArrayList<>();
+        transfers.add(CompletableFuture.supplyAsync(() -> dispatcher.dispatch(buildTransfer(1, HOT_ACCOUNT))));
+        assertTrue(firstCallStarted.await(5, TimeUnit.SECONDS));
+        for (long transferId = 2; transferId <= 3; transferId++) {
+            long id = transferId;
+            transfers.add(CompletableFuture.supplyAsync(() -> dispatcher.dispatch(buildTransfer(id, HOT_ACCOUNT))));
+            awaitDepth(id - 1);
+        }
+        ledgerReleased.countDown();
+
+        for (CompletableFuture<ResponseEntity<String>> transfer : transfers) {
+            assertEquals("SUCCESS", transfer.get(5, TimeUnit.SECONDS).getBody());
+        }
+        InOrder inOrder = inOrder(ledgerFeignClient);
+        for (long transferId = 1; transferId <= 3; transferId++) {
+            long id = transferId;
+            inOrder.verify(ledgerFeignClient).createTransfer(argThat(transfer -> transfer.getTransferId() == id));
+        }
+    }
+
+    @Test
+    public void testTimedOutTransferIsNotSent() throws Exception {
+        dispatcher.stop();
+        dispatcher = buildDispatcher(200);
+        CountDownLatch firstCallStarted = new CountDownLatch(1);
+        CountDownLatch ledgerReleased = new CountDownLatch(1);
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            firstCallStarted.countDown();
+            ledgerReleased.await();
+            return ResponseEntity.ok("SUCCESS");
+        });
+
+        CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(() -> dispatcher.dispatch(buildTransfer(1, HOT_ACCOUNT)));
+        assertTrue(firstCallStarted.await(5, TimeUnit.SECONDS));
+        assertThrows(LedgerUnavailableException.class, () -> dispatcher.dispatch(buildTransfer(2, HOT_ACCOUNT)));
+        ledgerReleased.countDown();
+        assertEquals("SUCCESS", first.get(5, TimeUnit.SECONDS).getBody());
+
+        assertEquals("SUCCESS", dispatcher.dispatch(buildTransfer(3, HOT_ACCOUNT)).getBody());
+        verify(ledgerFeignClient, never()).createTransfer(argThat(transfer -> transfer.getTransferId() == 2));
+        verify(ledgerFeignClient, never()).createTransfers(any());
+    }
+
+    @Test
+    public void testSentTransferAnsweredAfterTimeoutKeepsItsAnswer() throws Exception {
+        dispatcher.stop();
+        dispatcher = buildDispatcher(100);
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            Thread.sleep(400);
+            return ResponseEntity.ok("SUCCESS");
+        });
+
+        assertEquals("SUCCESS", dispatcher.dispatch(buildTransfer(1, HOT_ACCOUNT)).getBody());
+        verify(ledgerFeignClient, times(1)).createTransfer(any());
+    }
+
+    private AccountLaneDispatcher buildDispatcher(long timeoutMs) {
+        AccountLaneDispatcher laneDispatcher = new AccountLaneDispatcher(ledgerFeignClient, new TransferMetrics(meterRegistry), meterRegistry,
+                true, 4, 100, 50, timeoutMs, true, 600000);
+        laneDispatcher.start();
+        return laneDispatcher;
+    }
+
+    private void awaitDepth(long depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("transfer.lane.depth").gauge().value() < depth) {
+            assertTrue(System.nanoTime() < deadline, "lane never reached depth " + depth);
+            Thread.sleep(5);
+        }
+    }
+
+    private TransferDTO buildTransfer(long transferId, long fromAccountId) {
+        return TransferDTO.builder()
+                .transferId(transferId)
+                .fromAccountId(fromAccountId)
+                .toAccountId(56789)
+                .amount(BigDecimal.valueOf(200))
+                .build();
+    }
+}
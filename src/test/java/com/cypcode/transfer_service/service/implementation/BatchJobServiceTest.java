@@ -0,0 +1,135 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.configuration.LedgerFeignClient;
+import com.cypcode.transfer_service.entity.BatchJobItem;
+import com.cypcode.transfer_service.entity.BatchJobItemStatus;
+import com.cypcode.transfer_service.entity.BatchJobStatus;
+import com.cypcode.transfer_service.entity.dto.BatchItemResultDTO;
+import com.cypcode.transfer_service.entity.dto.BatchJobDTO;
+import com.cypcode.transfer_service.entity.dto.LedgerTransferResultDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.repository.IBatchJobItemRepository;
+import com.cypcode.transfer_service.repository.IBatchJobRepository;
+import com.cypcode.transfer_service.service.BatchJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// own database: the dispatchers of other cached test contexts would otherwise pick up these jobs like other replicas
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batchjobdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;MODE=PostgreSQL;",
+        "cypcode.service.transfer.batch.job.chunk-size=100",
+        "cypcode.service.transfer.batch.job.poll-interval-ms=100"
+})
+public class BatchJobServiceTest {
+
+    @MockitoBean
+    private LedgerFeignClient ledgerFeignClient;
+
+    @Autowired
+    private BatchJobService batchJobService;
+
+    @Autowired
+    private IBatchJobRepository batchJobRepository;
+
+    @Autowired
+    private IBatchJobItemRepository batchJobItemRepository;
+
+    @Test
+    public void testJobProcessesAllItemsInChunks() throws Exception {
+        AtomicInteger bulkCalls = new AtomicInteger();
+        when(ledgerFeignClient.createTransfers(any())).thenAnswer(invocation -> {
+            bulkCalls.incrementAndGet();
+            List<TransferDTO> payload = invocation.getArgument(0);
+            assertTrue(payload.size() <= 100);
+            return ResponseEntity.ok(payload.stream()
+                    .map(item -> LedgerTransferResultDTO.builder()
+                            .transferId(item.getTransferId())
+                            .status(200)
+                            .response("SUCCESS")
+                            .build())
+                    .toList());
+        });
+
+        BatchJobDTO submitted = batchJobService.submitJob(buildBatch(250));
+        assertEquals(BatchJobStatus.SUBMITTED, submitted.getStatus());
+        assertEquals(250, submitted.getPendingItems());
+
+        BatchJobDTO job = awaitCompletion(submitted.getJobId());
+        assertEquals(250, job.getCompletedItems());
+        assertEquals(0, job.getPendingItems());
+        assertEquals(3, bulkCalls.get());
+        assertEquals(50, job.getItems().size());
+        assertTrue(job.getItems().stream().allMatch(item -> item.getStatus() == BatchItemResultDTO.Status.PROCESSED));
+        // items submitted without a transfer id are given one, so a resumed job replays rather than resends them
+        assertTrue(job.getItems().stream().allMatch(item -> item.getTransferId() > 0));
+    }
+
+    @Test
+    public void testAbandonedJobIsResumed() throws Exception {
+        when(ledgerFeignClient.createTransfers(any())).thenAnswer(invocation -> {
+            List<TransferDTO> payload = invocation.getArgument(0);
+            return ResponseEntity.ok(payload.stream()
+                    .map(item -> LedgerTransferResultDTO.builder()
+                            .transferId(item.getTransferId())
+                            .status(200)
+                            .response("SUCCESS")
+                            .build())
+                    .toList());
+        });
+        BatchJobDTO submitted = batchJobService.submitJob(buildBatch(10));
+        awaitCompletion(submitted.getJobId());
+
+        // simulate an instance that died mid-job: items back to PENDING and a lapsed lease
+        List<BatchJobItem> items = batchJobItemRepository.findByJobIdOrderByItemIndex(submitted.getJobId(), PageRequest.of(0, 10)).getContent();
+        items.forEach(item -> item.setStatus(BatchJobItemStatus.PENDING));
+        batchJobItemRepository.updateOutcomes(items);
+        batchJobRepository.findById(submitted.getJobId()).ifPresent(job -> {
+            job.setStatus(BatchJobStatus.RUNNING);
+            job.setCompletedItems(0);
+            job.setLeaseExpiry(LocalDateTime.now().minusMinutes(1));
+            batchJobRepository.save(job);
+        });
+        clearInvocations(ledgerFeignClient);
+
+        BatchJobDTO job = awaitCompletion(submitted.getJobId());
+        assertEquals(10, job.getCompletedItems());
+        assertTrue(job.getItems().stream().allMatch(item -> item.getStatus() == BatchItemResultDTO.Status.REPLAYED), job.getItems().toString());
+        verify(ledgerFeignClient, never()).createTransfers(any());
+    }
+
+    private BatchJobDTO awaitCompletion(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        BatchJobDTO job;
+        while ((job = batchJobService.getJob(jobId, 0, 50)).getStatus() != BatchJobStatus.COMPLETED) {
+            assertTrue(System.currentTimeMillis() < deadline, "batch job did not complete");
+            Thread.sleep(50);
+        }
+        return job;
+    }
+
+    private List<TransferDTO> buildBatch(int size) {
+        List<TransferDTO> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(TransferDTO.builder()
+                    .fromAccountId(12345)
+                    .toAccountId(56789)
+                    .amount(BigDecimal.valueOf(200))
+                    .build());
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,52 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import com.cypcode.transfer_service.repository.IIdempotencyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "cypcode.service.idempotency.sweeper.batch-size=2",
+        "cypcode.service.idempotency.sweeper.batch-pause-ms=0"
+})
+public class IdempotencyExpirySweeperTest {
+
+    @Autowired
+    private IdempotencyExpirySweeper sweeper;
+
+    @Autowired
+    private IIdempotencyRepository idempotencyRepository;
+
+    @Test
+    public void testPurgesOnlyExpiredRowsInBatches() {
+        String liveKey = UUID.randomUUID().toString();
+        idempotencyRepository.save(buildIdempotency(liveKey, LocalDateTime.now().plusHours(2)));
+        for (int i = 0; i < 5; i++) {
+            idempotencyRepository.save(buildIdempotency(UUID.randomUUID().toString(), LocalDateTime.now().minusMinutes(1)));
+        }
+
+        int purged = sweeper.purgeExpired();
+
+        assertTrue(purged >= 5, "purged " + purged);
+        assertTrue(idempotencyRepository.findExpiredIds(LocalDateTime.now(), Pageable.unpaged()).isEmpty());
+        assertNotNull(idempotencyRepository.findIdempotencyById(liveKey));
+    }
+
+    private Idempotency buildIdempotency(String id, LocalDateTime expiryDate) {
+        return Idempotency.builder()
+                .id(id)
+                .transferId((long) Math.abs(id.hashCode()))
+                .response("SUCCESS")
+                .expiryDate(expiryDate)
+                .status(IdempotencyStatus.COMPLETED)
+                .build();
+    }
+}
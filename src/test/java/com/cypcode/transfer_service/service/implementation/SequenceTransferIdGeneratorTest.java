@@ -0,0 +1,31 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "cypcode.service.transfer.id-generator.type=sequence")
+public class SequenceTransferIdGeneratorTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testBlocksAreUniqueAcrossInstances() {
+        Set<Long> ids = new HashSet<>();
+        // two instances sharing the sequence stand in for two replicas, or one replica before and after a restart
+        SequenceTransferIdGenerator first = new SequenceTransferIdGenerator(jdbcTemplate, 100);
+        SequenceTransferIdGenerator second = new SequenceTransferIdGenerator(jdbcTemplate, 100);
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(ids.add(first.nextId()));
+            assertTrue(ids.add(second.nextId()));
+        }
+        assertEquals(2_000, ids.size());
+    }
+}
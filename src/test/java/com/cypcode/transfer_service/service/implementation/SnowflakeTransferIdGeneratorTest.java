@@ -0,0 +1,69 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnowflakeTransferIdGeneratorTest {
+    private static final int NODES = 4;
+    private static final int RESTARTS = 3;
+    private static final int THREADS_PER_NODE = 4;
+    private static final int IDS_PER_THREAD = 20_000;
+
+    @Test
+    public void testIdsAreUniqueAcrossNodesAndRestarts() throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        try (ExecutorService executor = Executors.newFixedThreadPool(NODES * THREADS_PER_NODE)) {
+            for (int restart = 0; restart < RESTARTS; restart++) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int node = 0; node < NODES; node++) {
+                    // a fresh instance per node simulates the replica restarting
+                    SnowflakeTransferIdGenerator generator = new SnowflakeTransferIdGenerator(node);
+                    for (int thread = 0; thread < THREADS_PER_NODE; thread++) {
+                        futures.add(executor.submit(() -> {
+                            for (int i = 0; i < IDS_PER_THREAD; i++) {
+                                assertTrue(ids.add(generator.nextId()), "duplicate transfer id");
+                            }
+                        }));
+                    }
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+        }
+        assertEquals(NODES * RESTARTS * THREADS_PER_NODE * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    public void testIdsAreMonotonicPerNodeAndCarryNodeId() {
+        SnowflakeTransferIdGenerator generator = new SnowflakeTransferIdGenerator(513);
+        long previous = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(513, (id >>> SnowflakeTransferIdGenerator.SEQUENCE_BITS) & SnowflakeTransferIdGenerator.MAX_NODE_ID);
+            previous = id;
+        }
+    }
+
+    @Test
+    public void testRejectsOutOfRangeNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeTransferIdGenerator(SnowflakeTransferIdGenerator.MAX_NODE_ID + 1));
+    }
+
+    @Test
+    public void testNodeIdIsDerivedOnlyWhenAllowed() {
+        assertThrows(IllegalStateException.class, () -> new SnowflakeTransferIdGenerator(-1, false));
+        long derived = new SnowflakeTransferIdGenerator(-1, true).getNodeId();
+        assertTrue(derived >= 0 && derived <= SnowflakeTransferIdGenerator.MAX_NODE_ID);
+    }
+}
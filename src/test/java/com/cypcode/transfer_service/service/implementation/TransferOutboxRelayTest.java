@@ -0,0 +1,129 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.common.exception.TransferRejectedException;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import com.cypcode.transfer_service.entity.TransferOutbox;
+import com.cypcode.transfer_service.entity.dto.IdempotencyDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.repository.IIdempotencyRepository;
+import com.cypcode.transfer_service.repository.ITransferOutboxRepository;
+import com.cypcode.transfer_service.service.TransferService;
+import com.cypcode.transfer_service.support.StubLedgerServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// own database: relays of other cached test contexts poll the shared one and would claim this test's outbox rows
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outboxdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;MODE=PostgreSQL;",
+        "cypcode.service.ledger.bulk.enabled=false",
+        "cypcode.service.transfer.outbox.poll-interval-ms=3600000",
+        "cypcode.service.transfer.outbox.initial-backoff-ms=0"
+})
+public class TransferOutboxRelayTest {
+    private static final StubLedgerServer stubLedger = startStubLedger();
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferOutboxRelay transferOutboxRelay;
+
+    @Autowired
+    private ITransferOutboxRepository outboxRepository;
+
+    @Autowired
+    private IIdempotencyRepository idempotencyRepository;
+
+    @DynamicPropertySource
+    static void ledgerProperties(DynamicPropertyRegistry registry) {
+        registry.add("cypcode.service.ledger.base-url", stubLedger::getBaseUrl);
+    }
+
+    @AfterAll
+    static void stopStubLedger() {
+        stubLedger.close();
+    }
+
+    @Test
+    public void testQueuedTransferIsRelayedOnceLedgerRecovers() {
+        String idempotencyKey = UUID.randomUUID().toString();
+        stubLedger.setErrorRate(1);
+
+        IdempotencyDTO pending = transferService.createTransferWithIndempotency(buildTransfer(), idempotencyKey);
+        assertTrue(pending.isPending());
+        assertEquals(IdempotencyStatus.PENDING, idempotencyRepository.findIdempotencyById(idempotencyKey).status());
+        assertTrue(outboxRepository.existsById(pending.getTransferId()));
+
+        int requests = stubLedger.getRequestCount();
+        IdempotencyDTO replayed = transferService.createTransferWithIndempotency(buildTransfer(), idempotencyKey);
+        assertTrue(replayed.isPending());
+        assertEquals(pending.getTransferId(), replayed.getTransferId());
+        assertEquals(requests, stubLedger.getRequestCount());
+
+        assertEquals(0, transferOutboxRelay.relayDue());
+        TransferOutbox retried = outboxRepository.findById(pending.getTransferId()).orElseThrow();
+        assertEquals(1, retried.getAttempts());
+        assertNotNull(retried.getLastError());
+
+        stubLedger.setErrorRate(0);
+        assertEquals(1, transferOutboxRelay.relayDue());
+
+        assertFalse(outboxRepository.existsById(pending.getTransferId()));
+        IdempotencyDTO completed = transferService.createTransferWithIndempotency(buildTransfer(), idempotencyKey);
+        assertEquals("SUCCESS", completed.getResponse());
+        assertEquals(pending.getTransferId(), completed.getTransferId());
+        assertEquals("SUCCESS", transferService.getTransferById(pending.getTransferId()).getResponse());
+    }
+
+    @Test
+    public void testRelayedRejectionIsNotReplayedAsSuccess() {
+        String idempotencyKey = UUID.randomUUID().toString();
+        stubLedger.setErrorRate(1);
+        IdempotencyDTO pending = transferService.createTransferWithIndempotency(buildTransfer(), idempotencyKey);
+        assertTrue(pending.isPending());
+
+        stubLedger.setErrorRate(0);
+        stubLedger.setRejectStatus(412);
+        try {
+            assertEquals(1, transferOutboxRelay.relayDue());
+        } finally {
+            stubLedger.setRejectStatus(0);
+        }
+
+        assertFalse(outboxRepository.existsById(pending.getTransferId()));
+        assertEquals(IdempotencyStatus.REJECTED, idempotencyRepository.findIdempotencyById(idempotencyKey).status());
+        int requests = stubLedger.getRequestCount();
+        TransferRejectedException rejected = assertThrows(TransferRejectedException.class,
+                () -> transferService.createTransferWithIndempotency(buildTransfer(), idempotencyKey));
+        assertTrue(rejected.getMessage().contains("INSUFFICIENT FUNDS"));
+        assertEquals(requests, stubLedger.getRequestCount());
+        assertNull(transferService.findReplayResponse(idempotencyKey));
+    }
+
+    private TransferDTO buildTransfer() {
+        return TransferDTO.builder()
+                .fromAccountId(12345)
+                .toAccountId(56789)
+                .amount(BigDecimal.valueOf(200))
+                .build();
+    }
+
+    private static StubLedgerServer startStubLedger() {
+        try {
+            return new StubLedgerServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.configuration.LedgerFeignClient;
+import com.cypcode.transfer_service.entity.dto.IdempotencyDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.repository.IIdempotencyRepository;
+import com.cypcode.transfer_service.service.TransferService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+public class TransferServiceConcurrencyTest {
+    private static final int CONCURRENT_REQUESTS = 20;
+
+    @MockitoBean
+    private LedgerFeignClient ledgerFeignClient;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private IIdempotencyRepository idempotencyRepository;
+
+    @Test
+    public void testConcurrentDuplicatesCallLedgerOnce() throws Exception {
+        String idempotencyKey = UUID.randomUUID().toString();
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return ResponseEntity.ok("SUCCESS");
+        });
+
+        List<IdempotencyDTO> responses = runConcurrently(CONCURRENT_REQUESTS, () -> transferService.createTransferWithIndempotency(
+                TransferDTO.builder()
+                        .fromAccountId(12345)
+                        .toAccountId(56789)
+                        .amount(BigDecimal.valueOf(200))
+                        .build(), idempotencyKey));
+
+        verify(ledgerFeignClient, times(1)).createTransfer(any());
+        assertEquals(CONCURRENT_REQUESTS, responses.size());
+        assertTrue(responses.stream().allMatch(response -> response.getTransferId().equals(responses.get(0).getTransferId())));
+        assertTrue(responses.stream().allMatch(response -> "SUCCESS".equals(response.getResponse())));
+    }
+
+    @Test
+    public void testReservationIsAtomicAcrossInstances() throws Exception {
+        String idempotencyKey = UUID.randomUUID().toString();
+        AtomicInteger reservations = new AtomicInteger();
+
+        // bypasses the in-process coalescing, as a second replica would
+        runConcurrently(CONCURRENT_REQUESTS, () -> {
+            try {
+                reservations.addAndGet(idempotencyRepository.reserve(idempotencyKey, 1L, LocalDateTime.now().plusSeconds(30)));
+            } catch (DataIntegrityViolationException e) {
+                // key already reserved by another caller
+            }
+            return null;
+        });
+
+        assertEquals(1, reservations.get());
+    }
+
+    private <T> List<T> runConcurrently(int requests, Callable<T> request) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<T> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(requests)) {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return request.call();
+                }));
+            }
+            start.countDown();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        }
+        return results;
+    }
+}
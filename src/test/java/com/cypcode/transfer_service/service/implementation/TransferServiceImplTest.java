@@ -0,0 +1,543 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.common.exception.InsufficienetFundsException;
+import com.cypcode.transfer_service.common.exception.LedgerUnavailableException;
+import com.cypcode.transfer_service.configuration.LedgerFeignClient;
+import com.cypcode.transfer_service.entity.Idempotency;
+import com.cypcode.transfer_service.entity.IdempotencyStatus;
+import com.cypcode.transfer_service.entity.dto.BatchItemResultDTO;
+import com.cypcode.transfer_service.entity.dto.IdempotencyDTO;
+import com.cypcode.transfer_service.entity.dto.LedgerTransferResultDTO;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.entity.dto.TransferStatusDTO;
+import com.cypcode.transfer_service.entity.dto.TransferStatusQueryDTO;
+import com.cypcode.transfer_service.repository.IdempotencyCache;
+import com.cypcode.transfer_service.repository.IdempotencyStore;
+import com.cypcode.transfer_service.repository.IdempotencyWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import feign.FeignException;
+import feign.Request;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferServiceImplTest {
+    private static final long LEDGER_LATENCY_MS = 200;
+
+    @Mock
+    private LedgerFeignClient ledgerFeignClient;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private IdempotencyWriter idempotencyWriter;
+
+    @Mock
+    private AccountLaneDispatcher accountLaneDispatcher;
+
+    @Mock
+    private TransferOutboxRelay transferOutboxRelay;
+
+    @Spy
+    private IdempotencyCache idempotencyCache = new IdempotencyCache(new SimpleMeterRegistry(), 10_000);
+
+    @InjectMocks
+    private TransferServiceImpl transferService;
+
+    private ThreadPoolTaskExecutor ledgerExecutor;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void init(){
+        ReflectionTestUtils.setField(transferService, "transferIdGenerator", new SnowflakeTransferIdGenerator(0));
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(transferService, "transferMetrics", new TransferMetrics(meterRegistry));
+        ledgerExecutor = new ThreadPoolTaskExecutor();
+        ledgerExecutor.setCorePoolSize(20);
+        ledgerExecutor.setMaxPoolSize(20);
+        ledgerExecutor.initialize();
+        ReflectionTestUtils.setField(transferService, "ledgerExecutor", ledgerExecutor);
+        ReflectionTestUtils.setField(transferService, "batchMaxConcurrency", 20);
+        ReflectionTestUtils.setField(transferService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(transferService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        lenient().when(idempotencyStore.reserve(anyString(), anyLong(), any())).thenReturn(true);
+    }
+
+    @AfterEach
+    public void destroy(){
+        ledgerExecutor.shutdown();
+    }
+
+    @Test
+    public void testBatchTransferRunsItemsInParallel() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(LEDGER_LATENCY_MS);
+            inFlight.decrementAndGet();
+            return ResponseEntity.ok("SUCCESS");
+        });
+
+        long start = System.nanoTime();
+        List<BatchItemResultDTO> results = transferService.batchTransfer(buildBatch(20));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(20, results.size());
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == BatchItemResultDTO.Status.PROCESSED));
+        assertEquals(20, peakInFlight.get());
+        assertTrue(elapsedMs < LEDGER_LATENCY_MS * 4, "batch took " + elapsedMs + "ms");
+        verify(ledgerFeignClient, times(20)).createTransfer(any());
+    }
+
+    @Test
+    public void testBatchTransferRespectsFanOutLimit() throws Exception {
+        ReflectionTestUtils.setField(transferService, "batchMaxConcurrency", 5);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return ResponseEntity.ok("SUCCESS");
+        });
+
+        List<BatchItemResultDTO> results = transferService.batchTransfer(buildBatch(20));
+
+        assertEquals(20, results.size());
+        assertTrue(peakInFlight.get() <= 5, "peak in flight was " + peakInFlight.get());
+    }
+
+    @Test
+    public void testBatchTransferReportsFailedItems() throws Exception {
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            TransferDTO item = invocation.getArgument(0);
+            if (item.getTransferId() % 2 == 0) {
+                throw new IllegalStateException("ledger rejected " + item.getTransferId());
+            }
+            return ResponseEntity.ok("SUCCESS");
+        });
+
+        List<BatchItemResultDTO> results = transferService.batchTransfer(buildBatch(4));
+
+        assertEquals(1L, results.get(0).getTransferId());
+        assertEquals(BatchItemResultDTO.Status.PROCESSED, results.get(0).getStatus());
+        assertEquals("SUCCESS", results.get(0).getResponse());
+        assertEquals(BatchItemResultDTO.Status.FAILED, results.get(1).getStatus());
+        assertEquals("ledger rejected 2", results.get(1).getResponse());
+    }
+
+    @Test
+    public void testBatchTransferAssignsTransferIdsToItemsWithout() throws Exception {
+        when(ledgerFeignClient.createTransfer(any())).thenReturn(ResponseEntity.ok("SUCCESS"));
+        List<TransferDTO> batch = buildBatch(3);
+        batch.forEach(item -> item.setTransferId(0));
+
+        List<BatchItemResultDTO> results = transferService.batchTransfer(batch);
+
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == BatchItemResultDTO.Status.PROCESSED));
+        assertEquals(3, results.stream().map(BatchItemResultDTO::getTransferId).filter(transferId -> transferId > 0).distinct().count());
+        verify(ledgerFeignClient, times(3)).createTransfer(any());
+    }
+
+    @Test
+    public void testBatchTransferUsesBulkEndpoint() throws Exception {
+        ReflectionTestUtils.setField(transferService, "bulkEnabled", true);
+        ReflectionTestUtils.setField(transferService, "bulkMaxSize", 500);
+        when(ledgerFeignClient.createTransfers(any())).thenAnswer(invocation -> {
+            List<TransferDTO> payload = invocation.getArgument(0);
+            return ResponseEntity.ok(payload.stream()
+                    .map(item -> LedgerTransferResultDTO.builder()
+                            .transferId(item.getTransferId())
+                            .status(item.getTransferId() == 3 ? 412 : 200)
+                            .response(item.getTransferId() == 3 ? "INSUFFICIENT FUNDS" : "SUCCESS")
+                            .build())
+                    .toList());
+        });
+
+        List<BatchItemResultDTO> results = transferService.batchTransfer(buildBatch(50));
+
+        assertEquals(50, results.size());
+        assertEquals(BatchItemResultDTO.Status.FAILED, results.get(2).getStatus());
+        assertEquals("INSUFFICIENT FUNDS", results.get(2).getResponse());
+        assertEquals(49, results.stream().filter(result -> result.getStatus() == BatchItemResultDTO.Status.PROCESSED).count());
+        verify(ledgerFeignClient, times(1)).createTransfers(any());
+        verify(ledgerFeignClient, never()).createTransfer(any());
+        verify(idempotencyStore, times(1)).findAllById(any());
+    }
+
+    @Test
+    public void testBulkItemsAppliedByLedgerStayProcessedWhenStoreFails() throws Exception {
+        ReflectionTestUtils.setField(transferService, "bulkEnabled", true);
+        ReflectionTestUtils.setField(transferService, "bulkMaxSize", 500);
+        when(ledgerFeignClient.createTransfers(any())).thenAnswer(invocation -> {
+            List<TransferDTO> payload = invocation.getArgument(0);
+            return ResponseEntity.ok(payload.stream()
+                    .map(item -> LedgerTransferResultDTO.builder()
+                            .transferId(item.getTransferId())
+                            // a status without an HttpStatus constant is still read by its range
+                            .status(item.getTransferId() == 2 ? 299 : 200)
+                            .response("SUCCESS")
+                            .build())
+                    .toList());
+        });
+        doThrow(new IllegalStateException("database down")).when(idempotencyWriter).writeAll(any());
+
+        List<BatchItemResultDTO> results = transferService.batchTransfer(buildBatch(3));
+
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == BatchItemResultDTO.Status.PROCESSED));
+    }
+
+    @Test
+    public void testBatchTransferRejectsDuplicateTransferIds() throws Exception {
+        ReflectionTestUtils.setField(transferService, "bulkEnabled", true);
+        ReflectionTestUtils.setField(transferService, "bulkMaxSize", 500);
+        when(ledgerFeignClient.createTransfers(any())).thenAnswer(invocation -> {
+            List<TransferDTO> payload = invocation.getArgument(0);
+            return ResponseEntity.ok(payload.stream()
+                    .map(item -> LedgerTransferResultDTO.builder().transferId(item.getTransferId()).status(200).response("SUCCESS").build())
+                    .toList());
+        });
+        List<TransferDTO> batch = buildBatch(3);
+        batch.get(2).setTransferId(1);
+
+        List<BatchItemResultDTO> results = transferService.batchTransfer(batch);
+
+        assertEquals(BatchItemResultDTO.Status.PROCESSED, results.get(0).getStatus());
+        assertEquals(BatchItemResultDTO.Status.PROCESSED, results.get(1).getStatus());
+        assertEquals(BatchItemResultDTO.Status.FAILED, results.get(2).getStatus());
+        assertEquals("Duplicate transferId in batch", results.get(2).getResponse());
+        verify(ledgerFeignClient).createTransfers(argThat(payload -> payload.size() == 2));
+    }
+
+    @Test
+    public void testBatchTransferFallsBackWhenBulkIsUnsupported() throws Exception {
+        ReflectionTestUtils.setField(transferService, "bulkEnabled", true);
+        ReflectionTestUtils.setField(transferService, "bulkMaxSize", 500);
+        ReflectionTestUtils.setField(transferService, "bulkReprobeIntervalMs", 60_000L);
+        Request request = Request.create(Request.HttpMethod.POST, "/ledger/transfer/bulk", Map.of(), null, StandardCharsets.UTF_8, null);
+        when(ledgerFeignClient.createTransfers(any())).thenThrow(new FeignException.NotFound("Not Found", request, null, null));
+        when(ledgerFeignClient.createTransfer(any())).thenReturn(ResponseEntity.ok("SUCCESS"));
+
+        transferService.batchTransfer(buildBatch(5));
+        List<BatchItemResultDTO> results = transferService.batchTransfer(buildBatch(5).stream()
+                .peek(item -> item.setTransferId(item.getTransferId() + 100))
+                .toList());
+
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == BatchItemResultDTO.Status.PROCESSED));
+        // the bulk endpoint is not probed again until the re-probe interval passes
+        verify(ledgerFeignClient, times(1)).createTransfers(any());
+        verify(ledgerFeignClient, times(10)).createTransfer(any());
+    }
+
+    @Test
+    public void testReplayedKeyIsServedFromCache() {
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        when(ledgerFeignClient.createTransfer(any())).thenReturn(ResponseEntity.ok("SUCCESS"));
+
+        IdempotencyDTO created = transferService.createTransferWithIndempotency(buildBatch(1).get(0), idempotencyKey);
+        IdempotencyDTO replayed = transferService.createTransferWithIndempotency(buildBatch(1).get(0), idempotencyKey);
+        IdempotencyDTO status = transferService.getTransferById(created.getTransferId());
+
+        assertEquals(created, replayed);
+        assertEquals(created, status);
+        verify(ledgerFeignClient, times(1)).createTransfer(any());
+        verify(idempotencyStore, times(1)).findById(idempotencyKey);
+        verify(idempotencyStore, never()).findByTransferId(anyLong());
+    }
+
+    @Test
+    public void testReplayResponseIsSerializedOnce() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        ReflectionTestUtils.setField(transferService, "objectMapper", objectMapper);
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        when(ledgerFeignClient.createTransfer(any())).thenReturn(ResponseEntity.ok("SUCCESS"));
+
+        assertNull(transferService.findReplayResponse(idempotencyKey));
+        IdempotencyDTO created = transferService.createTransferWithIndempotency(buildBatch(1).get(0), idempotencyKey);
+        byte[] replay = transferService.findReplayResponse(idempotencyKey);
+
+        assertEquals(created, objectMapper.readValue(replay, IdempotencyDTO.class));
+        assertSame(replay, transferService.findReplayResponse(idempotencyKey));
+        assertEquals(2, meterRegistry.get("transfer.outcome").tag("outcome", "replayed").counter().count());
+        verify(idempotencyStore, times(1)).findById(idempotencyKey);
+    }
+
+    @Test
+    public void testTransferStagesAndOutcomesAreMetered() {
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        when(ledgerFeignClient.createTransfer(any()))
+                .thenReturn(ResponseEntity.ok("SUCCESS"))
+                .thenReturn(ResponseEntity.status(412).body("INSUFFICIENT FUNDS"));
+
+        transferService.createTransferWithIndempotency(buildBatch(1).get(0), idempotencyKey);
+        transferService.createTransferWithIndempotency(buildBatch(1).get(0), idempotencyKey);
+        assertThrows(InsufficienetFundsException.class,
+                () -> transferService.createTransferWithIndempotency(buildBatch(1).get(0), "a1d8c3f0-5b2e-4e7a-9c61-0f3b8d2e4a57"));
+
+        assertEquals(3, meterRegistry.get("transfer.request").timer().count());
+        assertEquals(3, meterRegistry.get("transfer.idempotency.lookup").timer().count());
+        assertEquals(2, meterRegistry.get("transfer.ledger.call").tag("mode", "single").timer().count());
+        assertEquals(1, meterRegistry.get("transfer.idempotency.save").timer().count());
+        assertEquals(1, meterRegistry.get("transfer.outcome").tag("outcome", "created").counter().count());
+        assertEquals(1, meterRegistry.get("transfer.outcome").tag("outcome", "replayed").counter().count());
+        assertEquals(1, meterRegistry.get("transfer.outcome").tag("outcome", "insufficient_funds").counter().count());
+    }
+
+    @Test
+    public void testUnavailableLedgerIsNotStoredAsSuccess() {
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        when(ledgerFeignClient.createTransfer(any()))
+                .thenThrow(new LedgerUnavailableException("Ledger unavailable"))
+                .thenReturn(ResponseEntity.ok("SUCCESS"));
+
+        assertThrows(LedgerUnavailableException.class,
+                () -> transferService.createTransferWithIndempotency(buildBatch(1).get(0), idempotencyKey));
+        verify(idempotencyWriter, never()).write(any());
+        verify(idempotencyStore, times(1)).release(eq(idempotencyKey), anyLong());
+
+        IdempotencyDTO retried = transferService.createTransferWithIndempotency(buildBatch(1).get(0), idempotencyKey);
+        assertEquals("SUCCESS", retried.getResponse());
+        verify(ledgerFeignClient, times(2)).createTransfer(any());
+    }
+
+    @Test
+    public void testStoreFailureAfterLedgerSuccessKeepsReservation() {
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        when(ledgerFeignClient.createTransfer(any())).thenReturn(ResponseEntity.ok("SUCCESS"));
+        doThrow(new IllegalStateException("database down")).when(idempotencyWriter).write(any());
+        when(idempotencyStore.transition(eq(idempotencyKey), anyLong(), eq(IdempotencyStatus.RESERVED), eq(IdempotencyStatus.UNRECONCILED),
+                eq("SUCCESS"), any())).thenReturn(true);
+
+        IdempotencyDTO response = transferService.createTransferWithIndempotency(buildBatch(1).get(0), idempotencyKey);
+
+        assertEquals("SUCCESS", response.getResponse());
+        verify(idempotencyStore, never()).release(anyString(), anyLong());
+        verify(idempotencyStore).transition(eq(idempotencyKey), eq(response.getTransferId()), eq(IdempotencyStatus.RESERVED),
+                eq(IdempotencyStatus.UNRECONCILED), eq("SUCCESS"), any());
+        assertEquals(1, meterRegistry.get("transfer.outcome").tag("outcome", "unreconciled").counter().count());
+    }
+
+    @Test
+    public void testUnavailableLedgerQueuesTransferAsPending() {
+        String idempotencyKey = "18ad19fa-c93a-484c-a964-e46a0fb7f3c6";
+        when(ledgerFeignClient.createTransfer(any())).thenThrow(new LedgerUnavailableException("Ledger unavailable"));
+        when(transferOutboxRelay.isEnabled()).thenReturn(true);
+        when(transferOutboxRelay.enqueue(any(), any())).thenReturn(true);
+
+        IdempotencyDTO pending = transferService.createTransferWithIndempotency(buildBatch(1).get(0), idempotencyKey);
+
+        assertTrue(pending.isPending());
+        assertEquals(idempotencyKey, pending.getId());
+        verify(transferOutboxRelay).enqueue(argThat(transfer -> transfer.getTransferId() == pending.getTransferId()),
+                argThat(idempotency -> idempotency.getStatus() == IdempotencyStatus.PENDING));
+        verify(idempotencyStore, never()).release(anyString(), anyLong());
+        verify(idempotencyWriter, never()).write(any());
+        assertEquals(1, meterRegistry.get("transfer.outcome").tag("outcome", "pending").counter().count());
+    }
+
+    @Test
+    public void testStreamTransferWritesResultPerRecord() throws Exception {
+        when(ledgerFeignClient.createTransfer(any())).thenReturn(ResponseEntity.ok("SUCCESS"));
+        ObjectMapper objectMapper = new ObjectMapper();
+        StringBuilder ndjson = new StringBuilder();
+        for (TransferDTO item : buildBatch(50)) {
+            ndjson.append(objectMapper.writeValueAsString(item)).append('\n');
+        }
+        ndjson.append("{\"transferId\":51,\"fromAccountId\":12345,\"toAccountId\":56789}\n");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        transferService.streamTransfer(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)), output);
+
+        List<BatchItemResultDTO> results = objectMapper.readerFor(BatchItemResultDTO.class)
+                .<BatchItemResultDTO>readValues(output.toByteArray()).readAll();
+        assertEquals(51, results.size());
+        assertEquals(50, results.stream().filter(result -> result.getStatus() == BatchItemResultDTO.Status.PROCESSED).count());
+        BatchItemResultDTO invalid = results.stream().filter(result -> result.getTransferId() == 51).findFirst().orElseThrow();
+        assertEquals(BatchItemResultDTO.Status.FAILED, invalid.getStatus());
+        assertEquals("amount is required", invalid.getResponse());
+        verify(ledgerFeignClient, times(50)).createTransfer(any());
+    }
+
+    @Test
+    public void testStreamTransferStartsBeforeUploadCompletes() throws Exception {
+        CountDownLatch firstCall = new CountDownLatch(1);
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            firstCall.countDown();
+            return ResponseEntity.ok("SUCCESS");
+        });
+        ObjectMapper objectMapper = new ObjectMapper();
+        PipedOutputStream upload = new PipedOutputStream();
+        PipedInputStream input = new PipedInputStream(upload);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CompletableFuture<Void> stream = CompletableFuture.runAsync(() -> {
+            try {
+                transferService.streamTransfer(input, output);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        List<TransferDTO> batch = buildBatch(2);
+        upload.write((objectMapper.writeValueAsString(batch.get(0)) + "\n").getBytes(StandardCharsets.UTF_8));
+        upload.flush();
+        // the second record has not been sent yet, so the ledger call comes from the first record alone
+        assertTrue(firstCall.await(5, TimeUnit.SECONDS));
+        upload.write((objectMapper.writeValueAsString(batch.get(1)) + "\n").getBytes(StandardCharsets.UTF_8));
+        upload.close();
+        stream.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, output.toString(StandardCharsets.UTF_8).lines().count());
+    }
+
+    @Test
+    public void testStreamTransferFailsRepeatedTransferId() throws Exception {
+        when(ledgerFeignClient.createTransfer(any())).thenReturn(ResponseEntity.ok("SUCCESS"));
+        ObjectMapper objectMapper = new ObjectMapper();
+        String record = objectMapper.writeValueAsString(buildBatch(1).get(0)) + "\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        transferService.streamTransfer(new ByteArrayInputStream((record + record).getBytes(StandardCharsets.UTF_8)), output);
+
+        List<BatchItemResultDTO> results = objectMapper.readerFor(BatchItemResultDTO.class)
+                .<BatchItemResultDTO>readValues(output.toByteArray()).readAll();
+        assertEquals(2, results.size());
+        assertTrue(results.stream().anyMatch(result -> result.getStatus() == BatchItemResultDTO.Status.PROCESSED));
+        assertTrue(results.stream().anyMatch(result -> result.getStatus() == BatchItemResultDTO.Status.FAILED
+                && result.getResponse().equals("Duplicate transferId in batch")));
+        // the item takes the single transfer's reservation, keyed by its own transferId
+        long transferId = results.get(0).getTransferId();
+        verify(idempotencyStore).reserve(eq(String.valueOf(transferId)), eq(transferId), any());
+        verify(ledgerFeignClient, times(1)).createTransfer(any());
+    }
+
+    @Test
+    public void testStreamTransferReportsMalformedRecord() throws Exception {
+        when(ledgerFeignClient.createTransfer(any())).thenReturn(ResponseEntity.ok("SUCCESS"));
+        ObjectMapper objectMapper = new ObjectMapper();
+        String ndjson = objectMapper.writeValueAsString(buildBatch(1).get(0)) + "\n{\"transferId\": 2,\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        transferService.streamTransfer(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), output);
+
+        List<BatchItemResultDTO> results = objectMapper.readerFor(BatchItemResultDTO.class)
+                .<BatchItemResultDTO>readValues(output.toByteArray()).readAll();
+        assertEquals(2, results.size());
+        assertTrue(results.stream().anyMatch(result -> result.getStatus() == BatchItemResultDTO.Status.PROCESSED));
+        assertTrue(results.stream().anyMatch(result -> result.getStatus() == BatchItemResultDTO.Status.FAILED
+                && result.getResponse().startsWith("Malformed record after item 1")));
+    }
+
+    @Test
+    public void testTransferStatusesAreReadFromCacheThenStoreInChunks() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        ReflectionTestUtils.setField(transferService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(transferService, "statusChunkSize", 2);
+        LocalDateTime expiryDate = LocalDateTime.now().plusHours(2);
+        idempotencyCache.put(buildIdempotency("a", 1, IdempotencyStatus.COMPLETED, expiryDate));
+        when(idempotencyStore.findAllByTransferId(List.of(2L)))
+                .thenReturn(List.of(buildIdempotency("b", 2, IdempotencyStatus.PENDING, expiryDate)));
+        when(idempotencyStore.findAllByTransferId(List.of(3L, 4L)))
+                .thenReturn(List.of(buildIdempotency("c", 3, IdempotencyStatus.RESERVED, expiryDate)));
+        when(idempotencyStore.findAllById(List.of("missing"))).thenReturn(List.of());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        transferService.streamTransferStatuses(TransferStatusQueryDTO.builder()
+                .transferIds(List.of(1L, 2L, 3L, 4L))
+                .idempotencyKeys(List.of("a", "missing"))
+                .build(), output);
+
+        List<TransferStatusDTO> statuses = objectMapper.readerFor(TransferStatusDTO.class)
+                .<TransferStatusDTO>readValues(output.toByteArray()).readAll();
+        assertEquals(List.of(TransferStatusDTO.Status.COMPLETED, TransferStatusDTO.Status.PENDING, TransferStatusDTO.Status.IN_PROGRESS,
+                        TransferStatusDTO.Status.NOT_FOUND, TransferStatusDTO.Status.COMPLETED, TransferStatusDTO.Status.NOT_FOUND),
+                statuses.stream().map(TransferStatusDTO::getStatus).toList());
+        assertEquals(4L, statuses.get(3).getTransferId());
+        assertEquals("a", statuses.get(4).getId());
+        assertEquals("missing", statuses.get(5).getId());
+        verify(idempotencyStore, times(2)).findAllByTransferId(any());
+        verify(idempotencyStore, times(1)).findAllById(any());
+    }
+
+    @Test
+    public void testTransferStatusRangeIsReadPageByPage() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        ReflectionTestUtils.setField(transferService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(transferService, "statusChunkSize", 2);
+        LocalDateTime expiryDate = LocalDateTime.now().plusHours(2);
+        when(idempotencyStore.findByTransferIdRange(10, 20, 2)).thenReturn(List.of(
+                buildIdempotency("10", 10, IdempotencyStatus.COMPLETED, expiryDate), buildIdempotency("12", 12, IdempotencyStatus.COMPLETED, expiryDate)));
+        when(idempotencyStore.findByTransferIdRange(13, 20, 2)).thenReturn(List.of(
+                buildIdempotency("14", 14, IdempotencyStatus.COMPLETED, expiryDate), buildIdempotency("16", 16, IdempotencyStatus.PENDING, expiryDate)));
+        when(idempotencyStore.findByTransferIdRange(17, 20, 2)).thenReturn(List.of(
+                buildIdempotency("18", 18, IdempotencyStatus.COMPLETED, expiryDate)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        transferService.streamTransferStatusRange(10, 20, output);
+
+        List<TransferStatusDTO> statuses = objectMapper.readerFor(TransferStatusDTO.class)
+                .<TransferStatusDTO>readValues(output.toByteArray()).readAll();
+        assertEquals(List.of(10L, 12L, 14L, 16L, 18L), statuses.stream().map(TransferStatusDTO::getTransferId).toList());
+        assertEquals(TransferStatusDTO.Status.PENDING, statuses.get(3).getStatus());
+        verify(idempotencyStore, times(3)).findByTransferIdRange(anyLong(), anyLong(), anyInt());
+    }
+
+    private Idempotency buildIdempotency(String id, long transferId, IdempotencyStatus status, LocalDateTime expiryDate) {
+        return Idempotency.builder()
+                .id(id)
+                .transferId(transferId)
+                .response(status == IdempotencyStatus.RESERVED ? null : "SUCCESS")
+                .expiryDate(expiryDate)
+                .status(status)
+                .build();
+    }
+
+    private List<TransferDTO> buildBatch(int size) {
+        List<TransferDTO> batch = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            batch.add(TransferDTO.builder()
+                    .transferId(i)
+                    .fromAccountId(12345)
+                    .toAccountId(56789)
+                    .amount(BigDecimal.valueOf(200))
+                    .build());
+        }
+        return batch;
+    }
+}
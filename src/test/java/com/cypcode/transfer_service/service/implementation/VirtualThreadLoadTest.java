@@ -0,0 +1,111 @@
+package com.cypcode.transfer_service.service.implementation;
+
+import com.cypcode.transfer_service.configuration.LedgerFeignClient;
+import com.cypcode.transfer_service.entity.dto.TransferDTO;
+import com.cypcode.transfer_service.repository.IdempotencyCache;
+import com.cypcode.transfer_service.repository.IdempotencyStore;
+import com.cypcode.transfer_service.repository.IdempotencyWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares how many transfers can be in flight against a ledger with fixed latency when requests are served by a
+ * platform pool the size of Tomcat's default (200 threads) versus one virtual thread per request.
+ */
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+public class VirtualThreadLoadTest {
+    private static final int CONCURRENT_REQUESTS = 1000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final long LEDGER_LATENCY_MS = 100;
+
+    @Mock
+    private LedgerFeignClient ledgerFeignClient;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private IdempotencyWriter idempotencyWriter;
+
+    @Mock
+    private AccountLaneDispatcher accountLaneDispatcher;
+
+    @Spy
+    private IdempotencyCache idempotencyCache = new IdempotencyCache(new SimpleMeterRegistry(), 10_000);
+
+    @InjectMocks
+    private TransferServiceImpl transferService;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    @BeforeEach
+    public void init(){
+        ReflectionTestUtils.setField(transferService, "transferIdGenerator", new SnowflakeTransferIdGenerator(0));
+        ReflectionTestUtils.setField(transferService, "transferMetrics", new TransferMetrics(new SimpleMeterRegistry()));
+        when(idempotencyStore.reserve(anyString(), anyLong(), any())).thenReturn(true);
+        when(ledgerFeignClient.createTransfer(any())).thenAnswer(invocation -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(LEDGER_LATENCY_MS);
+            inFlight.decrementAndGet();
+            return ResponseEntity.ok("SUCCESS");
+        });
+    }
+
+    @Test
+    public void testVirtualThreadsKeepMoreTransfersInFlight() throws Exception {
+        long platformElapsedMs = runLoad("platform", Executors.newFixedThreadPool(PLATFORM_THREADS));
+        int platformPeak = peakInFlight.getAndSet(0);
+
+        long virtualElapsedMs = runLoad("virtual", Executors.newVirtualThreadPerTaskExecutor());
+        int virtualPeak = peakInFlight.get();
+
+        log.info("{} transfers at {}ms ledger latency: platform peak in flight {} in {}ms, virtual peak in flight {} in {}ms",
+                CONCURRENT_REQUESTS, LEDGER_LATENCY_MS, platformPeak, platformElapsedMs, virtualPeak, virtualElapsedMs);
+        assertTrue(platformPeak <= PLATFORM_THREADS);
+        assertTrue(virtualPeak > PLATFORM_THREADS, "virtual peak in flight was " + virtualPeak);
+    }
+
+    private long runLoad(String keyPrefix, ExecutorService executor) throws Exception {
+        long start = System.nanoTime();
+        try (executor) {
+            List<Future<?>> futures = new ArrayList<>(CONCURRENT_REQUESTS);
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                String idempotencyKey = keyPrefix + "-" + i;
+                futures.add(executor.submit(() -> transferService.createTransferWithIndempotency(TransferDTO.builder()
+                        .fromAccountId(12345)
+                        .toAccountId(56789)
+                        .amount(BigDecimal.valueOf(200))
+                        .build(), idempotencyKey)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,115 @@
+package com.cypcode.transfer_service.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fake ledger on an ephemeral port. Latency and error rate can be changed while it runs, and it records
+ * how many requests it served and over how many distinct client connections.
+ */
+public class StubLedgerServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long latencyMs;
+    private volatile double errorRate;
+    private volatile int rejectStatus;
+
+    public StubLedgerServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Answers every request with this status and an INSUFFICIENT FUNDS body while it is non-zero.
+     */
+    public void setRejectStatus(int rejectStatus) {
+        this.rejectStatus = rejectStatus;
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public void reset() {
+        connections.clear();
+        requests.set(0);
+        latencyMs = 0;
+        errorRate = 0;
+        rejectStatus = 0;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    protected long latencyFor(int inFlight) {
+        return latencyMs;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        connections.add(exchange.getRemoteAddress());
+        int current = inFlight.incrementAndGet();
+        try {
+            exchange.getRequestBody().readAllBytes();
+            long latency = latencyFor(current);
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            int rejected = rejectStatus;
+            boolean failed = errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+            String answer = rejected > 0 ? "INSUFFICIENT FUNDS" : failed ? "LEDGER ERROR" : "SUCCESS";
+            byte[] body = answer.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(rejected > 0 ? rejected : failed ? 500 : 200, body.length);
+            try (OutputStream response = exchange.getResponseBody()) {
+                response.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+}